@@ -0,0 +1,209 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+
+package com.google.sps.other;
+
+import static com.google.sps.other.Constants.*;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read-through cache of the newest comments, so that page loads only query datastore after a
+ * comment was posted or deleted. The newest MAXCACHEDCOMMENTS comments are kept in memory together
+ * with the datastore cursor after each of them, so a first page of any size up to that amount can
+ * be answered with the same cursor a datastore query would give.
+ *
+ * Every write bumps a generation number, and a cached list only counts while its generation is the
+ * current one. With memcache turned on, the generation and the list live in memcache too, so every
+ * instance sees writes made on the others.
+ */
+public class CommentCache {
+
+  private static final String GENERATIONKEY = "comment-cache-generation";
+  // Holds the comments' JSON, so lists cached before comments were stored as JSON aren't read.
+  private static final String COMMENTSKEYPREFIX = "comment-cache-json-";
+
+  private static final CommentCache INSTANCE = new CommentCache(
+      DatastoreServiceFactory.getDatastoreService(),
+      Boolean.getBoolean(COMMENTCACHEMEMCACHEPROPERTY)
+          ? MemcacheServiceFactory.getMemcacheService() : null);
+
+  private final DatastoreService datastore;
+
+  // Null when the cache only lives in this instance's memory.
+  private final MemcacheService memcache;
+
+  private final AtomicLong localGeneration = new AtomicLong();
+  private final AtomicReference<RecentComments> recent = new AtomicReference<>();
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  public CommentCache(DatastoreService datastore, MemcacheService memcache) {
+    this.datastore = datastore;
+    this.memcache = memcache;
+  }
+
+  /** Returns the cache shared by the comment servlets. */
+  public static CommentCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the newest commentCount comments and the cursor of the page after them, querying
+   * datastore only if the cached comments are out of date. Returns null if commentCount is more
+   * than the cache holds.
+   */
+  public CommentPage getFirstPage(int commentCount) {
+    if (commentCount < 1 || commentCount > MAXCACHEDCOMMENTS) {
+      return null;
+    }
+
+    long generation = getGeneration();
+    RecentComments comments = this.recent.get();
+    if (!isCurrent(comments, generation) && this.memcache != null) {
+      // Another instance may already have loaded this generation.
+      comments = (RecentComments) this.memcache.get(COMMENTSKEYPREFIX + generation);
+      if (isCurrent(comments, generation)) {
+        this.recent.set(comments);
+      }
+    }
+
+    if (isCurrent(comments, generation)) {
+      this.hitCount.incrementAndGet();
+    } else {
+      this.missCount.incrementAndGet();
+      comments = load(generation);
+      publish(comments);
+    }
+    return comments.getFirstPage(commentCount);
+  }
+
+  /** Drops the cached comments. Call this after every change to the comments in datastore. */
+  public void invalidate() {
+    this.localGeneration.incrementAndGet();
+    this.recent.set(null);
+    if (this.memcache != null) {
+      this.memcache.increment(GENERATIONKEY, 1L, 0L);
+    }
+  }
+
+  public long getHitCount() {
+    return this.hitCount.get();
+  }
+
+  public long getMissCount() {
+    return this.missCount.get();
+  }
+
+  /** Returns the fraction of first pages served without querying datastore. */
+  public double getHitRate() {
+    long hits = getHitCount();
+    long total = hits + getMissCount();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  private long getGeneration() {
+    if (this.memcache == null) {
+      return this.localGeneration.get();
+    }
+
+    // Incrementing by zero reads the counter and creates it if it's missing.
+    Long generation = this.memcache.increment(GENERATIONKEY, 0L, 0L);
+    return generation == null ? -1 : generation;
+  }
+
+  private boolean isCurrent(RecentComments comments, long generation) {
+    // A generation of -1 means memcache is down, so nothing cached can be trusted.
+    return comments != null && generation >= 0 && comments.generation == generation
+        && System.currentTimeMillis() - comments.loadedAt < COMMENTCACHETTLMILLIS;
+  }
+
+  private RecentComments load(long generation) {
+    Query query = new Query(COMMENTPATH).addSort(TIMESTAMPPROPERTY, SortDirection.DESCENDING);
+    QueryResultIterator<Entity> results = this.datastore.prepare(query)
+        .asQueryResultIterator(FetchOptions.Builder.withLimit(MAXCACHEDCOMMENTS));
+
+    // Remember the cursor after every comment, so pages of any size can hand out a cursor.
+    List<String> comments = new ArrayList<>();
+    List<String> cursors = new ArrayList<>();
+    while (results.hasNext()) {
+      comments.add(Common.getCommentJSON(results.next()));
+      cursors.add(results.getCursor().toWebSafeString());
+    }
+    return new RecentComments(generation, comments, cursors);
+  }
+
+  private void publish(RecentComments comments) {
+    // Keep the comments only if nothing was written while they were being loaded. Otherwise the
+    // next read loads them again.
+    if (comments.generation != getGeneration()) {
+      return;
+    }
+
+    this.recent.set(comments);
+    if (this.memcache != null) {
+      this.memcache.put(COMMENTSKEYPREFIX + comments.generation, comments,
+          Expiration.byDeltaMillis((int) COMMENTCACHETTLMILLIS));
+    }
+  }
+
+  /** The JSON of the newest comments as of one generation, and the cursor after each of them. */
+  private static class RecentComments implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final long generation;
+    private final long loadedAt;
+    private final List<String> comments;
+    private final List<String> cursors;
+
+    RecentComments(long generation, List<String> comments, List<String> cursors) {
+      this.generation = generation;
+      this.loadedAt = System.currentTimeMillis();
+      this.comments = comments;
+      this.cursors = cursors;
+    }
+
+    CommentPage getFirstPage(int commentCount) {
+      int size = Math.min(commentCount, this.comments.size());
+
+      // A short page is the last one, and so is a page that ends where the comments ran out
+      // before the cache was full.
+      String cursor = null;
+      boolean moreAfter =
+          size < this.comments.size() || this.comments.size() == MAXCACHEDCOMMENTS;
+      if (size == commentCount && moreAfter) {
+        cursor = this.cursors.get(size - 1);
+      }
+      return new CommentPage(new ArrayList<>(this.comments.subList(0, size)), cursor);
+    }
+  }
+}
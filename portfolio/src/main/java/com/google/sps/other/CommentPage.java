@@ -0,0 +1,63 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+
+package com.google.sps.other;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One page of comments, and the cursor that continues after it. The comments are kept as the JSON
+ * each one was stored with, so the page is written out without turning them back into objects.
+ */
+public class CommentPage {
+
+  private List<String> commentsJSON;
+
+  // Web-safe Datastore cursor of the next page, or null if this is the last page.
+  private String cursor;
+
+  public CommentPage(List<String> commentsJSON, String cursor) {
+    this.commentsJSON = commentsJSON;
+    this.cursor = cursor;
+  }
+
+  public List<String> getCommentsJSON() {
+    return this.commentsJSON;
+  }
+
+  public String getCursor() {
+    return this.cursor;
+  }
+
+  /** Writes the page as {"comments":[...],"cursor":"..."}, leaving out the cursor if it's null. */
+  public void writeJSON(Appendable out) throws IOException {
+    out.append("{\"comments\":[");
+    for (int i = 0; i < this.commentsJSON.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      out.append(this.commentsJSON.get(i));
+    }
+    out.append(']');
+
+    // Web-safe cursors only use letters, digits, '-', '_' and '=', so they need no escaping.
+    if (this.cursor != null) {
+      out.append(",\"cursor\":\"").append(this.cursor).append('"');
+    }
+    out.append("}\n");
+  }
+}
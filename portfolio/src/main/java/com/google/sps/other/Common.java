@@ -15,14 +15,32 @@
 
 package com.google.sps.other;
 
+import static com.google.sps.other.Constants.*;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Text;
 import com.google.gson.Gson;
 
 public class Common {
 
+  // Gson is thread-safe, so one instance serves every request.
+  private static final Gson GSON = new Gson();
+
   public static String getJSONString(Object object) {
-    Gson gson = new Gson();
-    String json = gson.toJson(object);
+    String json = GSON.toJson(object);
     return json;
   }
 
+  /**
+   * Gets the JSON of a comment entity. New comments store it when they're written, so this only
+   * renders it for comments written before that.
+   */
+  public static String getCommentJSON(Entity entity) {
+    Text json = (Text) entity.getProperty(JSONPROPERTY);
+    if (json != null) {
+      return json.getValue();
+    }
+    return getJSONString(new Comment.Builder().withEntity(entity).build());
+  }
+
 }
@@ -11,9 +11,48 @@ public final class Constants {
   // Default return string value for getting request parameters
   public static final String DEFAULTVALUE = "";
 
+  // Comment page cursor request parameter identifier
+  public static final String CURSOR = "cursor";
+
   // The amount of comments to show default
   public static final int DEFAULTCOMMENTCOUNT = 3;
 
+  // The most comments shown at once, so one request can't make every page load fetch them all
+  public static final int MAXCOMMENTCOUNT = 100;
+
+  // The amount of newest comments kept in the comment cache
+  public static final int MAXCACHEDCOMMENTS = 100;
+
+  // How long a cached comment list is trusted before it is read from datastore again
+  public static final long COMMENTCACHETTLMILLIS = 60 * 1000;
+
+  // System property that turns on the memcache layer of the comment cache
+  public static final String COMMENTCACHEMEMCACHEPROPERTY = "sps.commentCache.memcache";
+
+  // The most keys datastore deletes in one call
+  public static final int DELETEBATCHSIZE = 500;
+
+  // How many delete batches one delete task runs before it hands the rest to the next task
+  public static final int DELETEBATCHESPERTASK = 20;
+
+  // Path to comment deletion progress entities
+  public static final String DELETIONPATH = "CommentDeletion";
+
+  // Deleted comment count property identifier
+  public static final String DELETEDPROPERTY = "deleted";
+
+  // Deletion finished property identifier
+  public static final String DONEPROPERTY = "done";
+
+  // Deletion failed property identifier. A failed job is done as well, with comments left over.
+  public static final String FAILEDPROPERTY = "failed";
+
+  // Deletion job request parameter identifier
+  public static final String JOB = "job";
+
+  // Url of the servlet that runs comment deletion tasks
+  public static final String DELETE_WORKER_URL = "/delete-data-worker";
+
   // Path to comment entities
   public static final String COMMENTPATH = "Comment";
 
@@ -28,6 +67,9 @@ public final class Constants {
 
   // Timestamp property identifier
   public static final String TIMESTAMPPROPERTY = "timestamp";
+
+  // Pre-rendered comment json property identifier
+  public static final String JSONPROPERTY = "json";
   
   //Greeting url identifier
   public static final String GREETING_URL = "/greeting.html";
@@ -18,7 +18,8 @@ import static com.google.sps.other.Constants.*;
 import static com.google.sps.other.Common.*;
 
 import com.google.sps.other.Comment;
-import com.google.gson.Gson;
+import com.google.sps.other.CommentCache;
+import com.google.sps.other.CommentPage;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
@@ -31,6 +32,7 @@ import com.google.appengine.api.blobstore.BlobstoreServiceFactory;
 import com.google.appengine.api.images.ImagesService;
 import com.google.appengine.api.images.ImagesServiceFactory;
 import com.google.appengine.api.images.ServingUrlOptions;
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.users.UserService;
@@ -38,12 +40,15 @@ import com.google.appengine.api.users.UserServiceFactory;
 import com.google.appengine.api.datastore.Entity;
 import com.google.appengine.api.datastore.PreparedQuery;
 import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.datastore.Text;
 import com.google.appengine.api.datastore.Query.SortDirection;
 import com.google.appengine.api.datastore.FetchOptions;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import java.net.MalformedURLException;
 import java.net.URL;
 
@@ -51,41 +56,71 @@ import java.net.URL;
 @WebServlet("/data")
 public class DataServlet extends HttpServlet {
 
-  private List<Comment> comments;
+  // Shared by every request, so only thread-safe services are kept here. Everything that belongs to
+  // one request or one user lives in the request or the user's session.
   private DatastoreService datastore;
-  private int commentCount;
   private UserService userService;
   private BlobstoreService blobstoreService;
+  private CommentCache commentCache;
 
   @Override
   public void init() {
-    // Initialize datastore, comment memory, comment count, and user service.
+    // Initialize datastore and user service.
     this.datastore = DatastoreServiceFactory.getDatastoreService();
-    this.comments = new ArrayList<>();
-    this.commentCount = DEFAULTCOMMENTCOUNT;
     this.userService = UserServiceFactory.getUserService();
     this.blobstoreService = BlobstoreServiceFactory.getBlobstoreService();
+    this.commentCache = CommentCache.getInstance();
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    this.comments.clear();
+    int commentCount = getCommentCount(request);
+
+    // The first page comes from the comment cache, which only queries datastore after a change.
+    String cursorString = getParameter(request, CURSOR, DEFAULTVALUE);
+    if (cursorString.length() == 0) {
+      CommentPage cachedPage = this.commentCache.getFirstPage(commentCount);
+      if (cachedPage != null) {
+        response.setContentType("application/json");
+        cachedPage.writeJSON(response.getWriter());
+        return;
+      }
+    }
 
-    // Get "Comment" query from datastore and add only the commentCount amount of comments to memory.
+    // Continue after the previous page if the client sent back its cursor. Datastore resumes right
+    // where the cursor points, so a deep page costs the same as the first one.
+    FetchOptions fetchOptions = FetchOptions.Builder.withLimit(commentCount);
     Query query = new Query(COMMENTPATH).addSort(TIMESTAMPPROPERTY, SortDirection.DESCENDING);
-    PreparedQuery results = this.datastore.prepare(query);
-    for (Entity entity : results.asIterable(FetchOptions.Builder.withLimit(commentCount))) {
-      // Get each comment and add to memory
-      Comment comment = new Comment.Builder()
-	.withEntity(entity)
-	.build();
-      this.comments.add(comment);
+    QueryResultList<Entity> page;
+    try {
+      if (cursorString.length() > 0) {
+        fetchOptions.startCursor(Cursor.fromWebSafeString(cursorString));
+      }
+      // Get one page of the "Comment" query from datastore. Some bad cursors decode fine and are
+      // only rejected once the query runs, so run it inside the same check.
+      PreparedQuery results = this.datastore.prepare(query);
+      page = results.asQueryResultList(fetchOptions);
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid comment cursor");
+      return;
+    }
+
+    // Add the comments of this page to the response.
+    List<String> comments = new ArrayList<>(page.size());
+    for (Entity entity : page) {
+      // Each comment was rendered to json when it was posted, so just collect it
+      comments.add(getCommentJSON(entity));
+    }
+
+    // A short page is the last one, so only hand out a cursor when there may be more comments.
+    String nextCursor = null;
+    if (page.size() == commentCount) {
+      nextCursor = page.getCursor().toWebSafeString();
     }
 
     // Send json of queried data to front end.
-    String json = getJSONString(this.comments);
     response.setContentType("application/json");
-    response.getWriter().println(json);
+    new CommentPage(comments, nextCursor).writeJSON(response.getWriter());
   }
 
   @Override
@@ -106,24 +141,63 @@ public class DataServlet extends HttpServlet {
       commentEntity.setProperty(RAWTEXTPROPERTY, commentInput);
       commentEntity.setProperty(IMAGEURLPROPERTY, imageUrl);
       commentEntity.setProperty(TIMESTAMPPROPERTY, timestamp);
+
+      // Render the comment's json once here instead of on every page load.
+      Comment comment = new Comment.Builder()
+	.withEmail(email)
+	.withComment(commentInput)
+	.withImageUrl(imageUrl)
+	.atTimeStamp(timestamp)
+	.build();
+      commentEntity.setUnindexedProperty(JSONPROPERTY, new Text(getJSONString(comment)));
       this.datastore.put(commentEntity);
+      this.commentCache.invalidate();
     }
 
-    // Get how many comments the user wants.
-    String commentCountString = getParameter(request, COMMENTCOUNT, DEFAULTVALUE);
-
-    // Error check integer parsing. If not a number, change to default
-    try {
-      this.commentCount = Integer.parseInt(commentCountString);
-    } catch (NumberFormatException e) {
-      System.err.println("Could not convert to int: " + this.commentCount);
-      this.commentCount = DEFAULTCOMMENTCOUNT;
+    // Remember how many comments this user wants in their own session.
+    String commentCountString = request.getParameter(COMMENTCOUNT);
+    if (commentCountString != null) {
+      request.getSession().setAttribute(COMMENTCOUNT, parseCommentCount(commentCountString));
     }
 
     // Redirect to greeting page.
     response.sendRedirect(GREETING_URL);
   }
 
+  /**
+   * Gets how many comments to show: the comment count request parameter if there is one, then the
+   * count saved in the user's session, then the default.
+   */
+  private int getCommentCount(HttpServletRequest request) {
+    String commentCountString = request.getParameter(COMMENTCOUNT);
+    if (commentCountString != null) {
+      return parseCommentCount(commentCountString);
+    }
+
+    // Don't create a session just to read from it
+    HttpSession session = request.getSession(false);
+    if (session != null && session.getAttribute(COMMENTCOUNT) instanceof Integer) {
+      return (Integer) session.getAttribute(COMMENTCOUNT);
+    }
+    return DEFAULTCOMMENTCOUNT;
+  }
+
+  /**
+   * Parses a comment count. If it's not a positive number, returns the default, and counts above
+   * the maximum are lowered to it.
+   */
+  private int parseCommentCount(String commentCountString) {
+    try {
+      int commentCount = Integer.parseInt(commentCountString);
+      if (commentCount > 0) {
+        return Math.min(commentCount, MAXCOMMENTCOUNT);
+      }
+    } catch (NumberFormatException e) {
+      System.err.println("Could not convert to int: " + commentCountString);
+    }
+    return DEFAULTCOMMENTCOUNT;
+  }
+
   /**
    * Code segment taken from TextProcessor in the walkthrough.
    * @return the request parameter, or the default value if the parameter
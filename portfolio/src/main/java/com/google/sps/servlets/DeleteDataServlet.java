@@ -15,20 +15,28 @@
 package com.google.sps.servlets;
 
 import static com.google.sps.other.Constants.*;
+import static com.google.sps.other.Common.*;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.Key;
-import com.google.appengine.api.datastore.PreparedQuery;
-import com.google.appengine.api.datastore.Query;
-import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Starts deleting every comment in the background and reports how far it got. The deleting itself
+ * is done in batches by DeleteDataWorkerServlet, run from the task queue.
+ */
 @WebServlet("/delete-data")
 public class DeleteDataServlet extends HttpServlet {
 
@@ -40,13 +48,55 @@ public class DeleteDataServlet extends HttpServlet {
   }
 
   @Override
-  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {   
-    // Get "Comment" query from datastore and delete every entity
-    Query query = new Query(COMMENTPATH).addSort(TIMESTAMPPROPERTY, SortDirection.DESCENDING);
-    PreparedQuery results = datastore.prepare(query);
-    for (Entity entity : results.asIterable()) {
-      // Delete comment from server
-      datastore.delete(entity.getKey());
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // Record the new job so its progress can be looked up while it runs.
+    String job = UUID.randomUUID().toString();
+    Entity progress = new Entity(DELETIONPATH, job);
+    progress.setUnindexedProperty(DELETEDPROPERTY, 0L);
+    progress.setUnindexedProperty(DONEPROPERTY, false);
+    progress.setUnindexedProperty(FAILEDPROPERTY, false);
+    datastore.put(progress);
+
+    // Hand the deleting to the task queue so this request returns right away.
+    QueueFactory.getDefaultQueue().add(
+        TaskOptions.Builder.withUrl(DELETE_WORKER_URL).param(JOB, job));
+
+    response.setStatus(HttpServletResponse.SC_ACCEPTED);
+    writeProgress(response, job, 0, false, false);
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // Report the progress of the job the client started.
+    String job = request.getParameter(JOB);
+    if (job == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing job");
+      return;
     }
+
+    Entity progress;
+    try {
+      progress = datastore.get(KeyFactory.createKey(DELETIONPATH, job));
+    } catch (EntityNotFoundException e) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown job");
+      return;
+    }
+
+    // Jobs started before failures were recorded have no failed property, so a missing one is false
+    writeProgress(response, job, (long) progress.getProperty(DELETEDPROPERTY),
+        (boolean) progress.getProperty(DONEPROPERTY),
+        Boolean.TRUE.equals(progress.getProperty(FAILEDPROPERTY)));
+  }
+
+  private void writeProgress(HttpServletResponse response, String job, long deleted, boolean done,
+      boolean failed) throws IOException {
+    Map<String, Object> progress = new LinkedHashMap<>();
+    progress.put(JOB, job);
+    progress.put(DELETEDPROPERTY, deleted);
+    progress.put(DONEPROPERTY, done);
+    progress.put(FAILEDPROPERTY, failed);
+
+    response.setContentType("application/json");
+    response.getWriter().println(getJSONString(progress));
   }
 }
@@ -0,0 +1,186 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import static com.google.sps.other.Constants.*;
+
+import com.google.sps.other.CommentCache;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Task queue servlet that deletes comments for a job started by DeleteDataServlet. Each task
+ * deletes up to DELETEBATCHESPERTASK batches of keys and then queues the next task, so no single
+ * request runs into the request deadline.
+ *
+ * The job's progress entity holds the deleted count together with the cursor after the last
+ * counted batch, and both are updated in one transaction. A task always continues from that
+ * cursor, so a retried or duplicated task never counts a batch twice. The count can still come up
+ * short by one batch if a task dies after deleting a batch but before recording it, because the
+ * retry can't see the keys it already deleted. A job that can't go on is marked done and failed.
+ */
+@WebServlet(DELETE_WORKER_URL)
+public class DeleteDataWorkerServlet extends HttpServlet {
+
+  // App Engine sets this header on task queue requests and strips it from outside requests.
+  private static final String QUEUE_NAME_HEADER = "X-AppEngine-QueueName";
+
+  private DatastoreService datastore;
+
+  @Override
+  public void init() {
+    datastore = DatastoreServiceFactory.getDatastoreService();
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    if (request.getHeader(QUEUE_NAME_HEADER) == null) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN, "Only the task queue can delete data");
+      return;
+    }
+
+    // Returning without an error drops the task. Nothing here would change on a retry.
+    String job = request.getParameter(JOB);
+    Key progressKey;
+    try {
+      progressKey = KeyFactory.createKey(DELETIONPATH, job);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Dropping comment deletion task without a job");
+      return;
+    }
+
+    Query query = new Query(COMMENTPATH).setKeysOnly();
+    for (int batch = 0; batch < DELETEBATCHESPERTASK; batch++) {
+      Entity progress;
+      try {
+        progress = datastore.get(progressKey);
+      } catch (EntityNotFoundException e) {
+        System.err.println("Dropping comment deletion task for unknown job " + job);
+        return;
+      }
+      if ((boolean) progress.getProperty(DONEPROPERTY)) {
+        return;
+      }
+
+      // Only fetch keys, and continue after the last batch that was counted. Datastore may only
+      // notice that a cursor is invalid when the query runs.
+      String startCursor = (String) progress.getProperty(CURSOR);
+      FetchOptions fetchOptions = FetchOptions.Builder.withLimit(DELETEBATCHSIZE);
+      QueryResultList<Entity> results;
+      try {
+        if (startCursor != null) {
+          fetchOptions.startCursor(Cursor.fromWebSafeString(startCursor));
+        }
+        results = datastore.prepare(query).asQueryResultList(fetchOptions);
+      } catch (IllegalArgumentException e) {
+        // Nothing will ever get past this cursor, so end the job for the client that waits on it
+        System.err.println("Dropping comment deletion job " + job + " with invalid cursor");
+        markFailed(progressKey);
+        return;
+      }
+      List<Key> keys = new ArrayList<>(results.size());
+      for (Entity entity : results) {
+        keys.add(entity.getKey());
+      }
+
+      // Delete the whole batch in one call and record it with the cursor after it.
+      datastore.delete(keys);
+      boolean done = keys.size() < DELETEBATCHSIZE;
+      String nextCursor = results.getCursor().toWebSafeString();
+      if (!recordBatch(progressKey, startCursor, nextCursor, keys.size(), done)) {
+        // Another run of this task recorded the batch first and carries on from there.
+        return;
+      }
+
+      if (done) {
+        // The cached comments are gone now too
+        CommentCache.getInstance().invalidate();
+        return;
+      }
+    }
+
+    // Hand the rest to the next task.
+    QueueFactory.getDefaultQueue().add(
+        TaskOptions.Builder.withUrl(DELETE_WORKER_URL).param(JOB, job));
+  }
+
+  /**
+   * Marks the job as done but failed, so clients stop waiting for it.
+   */
+  private void markFailed(Key progressKey) {
+    Transaction transaction = datastore.beginTransaction();
+    try {
+      Entity progress = datastore.get(transaction, progressKey);
+      progress.setUnindexedProperty(DONEPROPERTY, true);
+      progress.setUnindexedProperty(FAILEDPROPERTY, true);
+      datastore.put(transaction, progress);
+      transaction.commit();
+    } catch (EntityNotFoundException e) {
+      // Nobody can be waiting on a job that doesn't exist
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+    }
+  }
+
+  /**
+   * Adds a deleted batch to the job's progress, unless another run of the task already recorded a
+   * batch from the same cursor. Returns whether the batch was recorded.
+   */
+  private boolean recordBatch(
+      Key progressKey, String startCursor, String nextCursor, int deleted, boolean done) {
+    Transaction transaction = datastore.beginTransaction();
+    try {
+      Entity progress = datastore.get(transaction, progressKey);
+      if (!Objects.equals(startCursor, progress.getProperty(CURSOR))) {
+        return false;
+      }
+
+      progress.setUnindexedProperty(DELETEDPROPERTY,
+          (long) progress.getProperty(DELETEDPROPERTY) + deleted);
+      progress.setUnindexedProperty(CURSOR, nextCursor);
+      progress.setUnindexedProperty(DONEPROPERTY, done);
+      datastore.put(transaction, progress);
+      transaction.commit();
+      return true;
+    } catch (EntityNotFoundException e) {
+      return false;
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+    }
+  }
+}
@@ -19,37 +19,54 @@ async function listAllCommentsAndFetchBlobUrl() {
   listAllComments();
 }
 
+// Cursor of the next page of comments, or undefined once every comment is shown.
+let nextCommentCursor;
+
 /**
- * Gets comment responses from the server.
+ * Gets one page of comment responses from the server. Pass the cursor of the previous page to get
+ * the comments after it.
  */
-async function getAllComments() {
-  let commentsList = new Array();
+async function getCommentPage(cursor) {
+  let url = '/data';
+  if (cursor) {
+    url += '?cursor=' + encodeURIComponent(cursor);
+  }
 
   // Wait for server response in data servlet
-  const response = await fetch('/data');
-  await response.json().then(comments => {
-    for(var comment of comments) {
-      // Add each comment into list
-      commentsList.push(comment);
-    }
-  })
-
-  // Return generated list
-  return commentsList;
+  const response = await fetch(url);
+  return await response.json();
 }
 
 /**
- * Lists every comment the user has inputed.
+ * Lists the newest comments the user has inputed.
  */
 async function listAllComments() {
-    // Get all the comments and put into a list
-    let commentsList = await getAllComments();
-    let length = commentsList.length;
+    const page = await getCommentPage();
+    document.getElementById('comments-list-container').innerHTML = getCommentsHTML(page.comments);
+    showLoadMoreButton(page.cursor);
+}
+
+/**
+ * Adds the next page of older comments below the ones already listed.
+ */
+async function listMoreComments() {
+    const page = await getCommentPage(nextCommentCursor);
+    document.getElementById('comments-list-container').innerHTML += getCommentsHTML(page.comments);
+    showLoadMoreButton(page.cursor);
+}
 
-    // Cant display less than 1 comment
-    if(length < 1) return;
+/**
+ * Remembers the cursor of the next page and only shows the button when there is one.
+ */
+function showLoadMoreButton(cursor) {
+  nextCommentCursor = cursor;
+  document.getElementById('load-more-comments').style.display = cursor ? 'inline' : 'none';
+}
 
-    // Put each comment into a list element
+/**
+ * Puts each comment into a list element.
+ */
+function getCommentsHTML(commentsList) {
     var currentHTML = "";
     for (const comment of commentsList) {
 
@@ -75,17 +92,56 @@ async function listAllComments() {
       let listElement = "<div id=\"comment\">" + "<p>" + email + "<br><br/>" + rawText + "</p>" + imageElement + "</div>";
       currentHTML += listElement;
     }
-
-    // Put each list element into the container
-    document.getElementById('comments-list-container').innerHTML = currentHTML;
+    return currentHTML;
 }
 
 /**
- * Deletes every comment.
+ * Starts deleting every comment on the server and returns the id of the deletion job.
  */
 async function deleteAllComments() {
   // Wait for response
   const response = await fetch('/delete-data', {method: 'POST'});
+  const progress = await response.json();
+  return progress.job;
+}
+
+/**
+ * Asks the server how far the deletion job has got. Returns null if the server can't say.
+ */
+async function getDeletionProgress(job) {
+  try {
+    const response = await fetch('/delete-data?job=' + encodeURIComponent(job));
+    if (!response.ok) {
+      return null;
+    }
+    return await response.json();
+  } catch (error) {
+    return null;
+  }
+}
+
+/**
+ * Shows the number of deleted comments on the purge button until the job is done. Returns whether
+ * every comment was deleted.
+ */
+async function waitForDeletion(job) {
+  const purgeButton = document.getElementById('purge-comments');
+  purgeButton.disabled = true;
+
+  let progress = await getDeletionProgress(job);
+  while (progress && !progress.done) {
+    purgeButton.innerText = 'Deleted ' + progress.deleted + ' comments...';
+    await new Promise(resolve => setTimeout(resolve, 500));
+    progress = await getDeletionProgress(job);
+  }
+
+  // The job stopped early or can't be looked up, so let the user try again
+  if (!progress || progress.failed) {
+    purgeButton.innerText = 'Deleting comments failed, try again';
+    purgeButton.disabled = false;
+    return false;
+  }
+  return true;
 }
 
 function redirectTo(link) {
@@ -93,8 +149,10 @@ function redirectTo(link) {
 }
 
 async function handlePurgeCommentsClick() {
-  deleteAllComments();
-  redirectTo(greeting_url);
+  const job = await deleteAllComments();
+  if (await waitForDeletion(job)) {
+    redirectTo(greeting_url);
+  }
 }
 
 async function requestLoginAndRedirectToNextPage() {
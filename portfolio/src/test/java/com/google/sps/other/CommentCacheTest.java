@@ -0,0 +1,175 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.other;
+
+import static com.google.sps.other.Constants.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.*;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.datastore.Text;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CommentCacheTest {
+  private final LocalServiceTestHelper helper = new LocalServiceTestHelper(
+      new LocalDatastoreServiceTestConfig().setDefaultHighRepJobPolicyUnappliedJobPercentage(0),
+      new LocalMemcacheServiceTestConfig());
+
+  private DatastoreService datastore;
+  private CommentCache cache;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    datastore = DatastoreServiceFactory.getDatastoreService();
+    cache = new CommentCache(datastore, null);
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void invalidateMakesTheNextReadLoadAgain() {
+    putComment(1);
+    Assert.assertEquals(Arrays.asList(json(1)), cache.getFirstPage(5).getCommentsJSON());
+
+    // Without a write through the cache the new comment stays hidden until invalidate
+    putComment(2);
+    Assert.assertEquals(Arrays.asList(json(1)), cache.getFirstPage(5).getCommentsJSON());
+    cache.invalidate();
+    Assert.assertEquals(Arrays.asList(json(2), json(1)), cache.getFirstPage(5).getCommentsJSON());
+  }
+
+  @Test
+  public void invalidateReachesOtherInstancesThroughMemcache() {
+    CommentCache first = new CommentCache(datastore, MemcacheServiceFactory.getMemcacheService());
+    CommentCache second = new CommentCache(datastore, MemcacheServiceFactory.getMemcacheService());
+    putComment(1);
+    first.getFirstPage(5);
+
+    // The second instance reads the list the first one loaded
+    Assert.assertEquals(Arrays.asList(json(1)), second.getFirstPage(5).getCommentsJSON());
+    Assert.assertEquals(1, second.getHitCount());
+
+    putComment(2);
+    first.invalidate();
+    Assert.assertEquals(Arrays.asList(json(2), json(1)), second.getFirstPage(5).getCommentsJSON());
+    Assert.assertEquals(1, second.getMissCount());
+  }
+
+  @Test
+  public void loadThatRacedAWriteDoesntReplaceANewerOne() {
+    // While the first load runs, a comment is posted and another read loads the newer comments
+    boolean[] raced = {false};
+    DatastoreService racingDatastore = mock(DatastoreService.class, delegatesTo(datastore));
+    doAnswer(invocation -> {
+      if (!raced[0]) {
+        raced[0] = true;
+        putComment(2);
+        cache.invalidate();
+        cache.getFirstPage(5);
+      }
+      return datastore.prepare((Query) invocation.getArgument(0));
+    }).when(racingDatastore).prepare(any(Query.class));
+    cache = new CommentCache(racingDatastore, null);
+    putComment(1);
+
+    cache.getFirstPage(5);
+
+    // The older load is thrown away, so the newer one is still served
+    Assert.assertEquals(Arrays.asList(json(2), json(1)), cache.getFirstPage(5).getCommentsJSON());
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void lastPageOfAShortListHasNoCursor() {
+    for (int i = 0; i < 5; i++) {
+      putComment(i);
+    }
+
+    Assert.assertEquals(getCursorAfter(3), cache.getFirstPage(3).getCursor());
+    Assert.assertNull(cache.getFirstPage(5).getCursor());
+    Assert.assertNull(cache.getFirstPage(8).getCursor());
+  }
+
+  @Test
+  public void fullCacheAlwaysHandsOutACursor() {
+    for (int i = 0; i < MAXCACHEDCOMMENTS; i++) {
+      putComment(i);
+    }
+
+    // The cache can't tell whether more comments come after the ones it holds
+    CommentPage page = cache.getFirstPage(MAXCACHEDCOMMENTS);
+    Assert.assertEquals(MAXCACHEDCOMMENTS, page.getCommentsJSON().size());
+    Assert.assertEquals(getCursorAfter(MAXCACHEDCOMMENTS), page.getCursor());
+    Assert.assertNull(cache.getFirstPage(MAXCACHEDCOMMENTS + 1));
+  }
+
+  @Test
+  public void countsHitsAndMisses() {
+    putComment(1);
+    Assert.assertEquals(0, cache.getHitRate(), 0);
+
+    cache.getFirstPage(1);
+    cache.getFirstPage(1);
+    cache.getFirstPage(1);
+    cache.invalidate();
+    cache.getFirstPage(1);
+
+    Assert.assertEquals(2, cache.getHitCount());
+    Assert.assertEquals(2, cache.getMissCount());
+    Assert.assertEquals(0.5, cache.getHitRate(), 0);
+  }
+
+  // Store a comment whose json only holds its number, with a timestamp that orders it
+  private void putComment(int number) {
+    Entity entity = new Entity(COMMENTPATH);
+    entity.setProperty(TIMESTAMPPROPERTY, (long) number);
+    entity.setUnindexedProperty(JSONPROPERTY, new Text(json(number)));
+    datastore.put(entity);
+  }
+
+  private static String json(int number) {
+    return "{\"number\":" + number + "}";
+  }
+
+  private String getCursorAfter(int commentCount) {
+    Query query = new Query(COMMENTPATH).addSort(TIMESTAMPPROPERTY, SortDirection.DESCENDING);
+    return datastore.prepare(query)
+        .asQueryResultList(FetchOptions.Builder.withLimit(commentCount))
+        .getCursor().toWebSafeString();
+  }
+}
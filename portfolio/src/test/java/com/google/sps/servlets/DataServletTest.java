@@ -0,0 +1,310 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import static com.google.sps.other.Constants.*;
+import static org.mockito.Mockito.*;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Text;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.appengine.tools.development.testing.LocalUserServiceTestConfig;
+import com.google.apphosting.api.ApiProxy;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.sps.other.Comment;
+import com.google.sps.other.CommentCache;
+import com.google.sps.other.Common;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class DataServletTest {
+  // The request attribute the blobstore service reads the uploaded files from.
+  private static final String UPLOADS_ATTRIBUTE =
+      "com.google.appengine.api.blobstore.upload.blobkeys";
+
+  private final LocalServiceTestHelper helper = new LocalServiceTestHelper(
+      new LocalDatastoreServiceTestConfig().setDefaultHighRepJobPolicyUnappliedJobPercentage(0),
+      new LocalUserServiceTestConfig())
+      .setEnvIsLoggedIn(true)
+      .setEnvEmail("user@example.com")
+      .setEnvAuthDomain("example.com");
+
+  private DataServlet servlet;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    CommentCache.getInstance().invalidate();
+    servlet = new DataServlet();
+    servlet.init();
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void getReturnsNewestCommentsFirst() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      putComment("Comment " + i, i);
+    }
+
+    JsonArray comments = get("2", null).getAsJsonArray("comments");
+
+    Assert.assertEquals(2, comments.size());
+    Assert.assertEquals("Comment 4", getRawText(comments.get(0)));
+    Assert.assertEquals("Comment 3", getRawText(comments.get(1)));
+  }
+
+  @Test
+  public void commentCountIsCappedAtTheMaximum() throws Exception {
+    for (int i = 0; i < MAXCOMMENTCOUNT + 5; i++) {
+      putComment("Comment " + i, i);
+    }
+
+    JsonObject page = get(String.valueOf(Integer.MAX_VALUE), null);
+
+    Assert.assertEquals(MAXCOMMENTCOUNT, page.getAsJsonArray("comments").size());
+    Assert.assertTrue(page.has(CURSOR));
+  }
+
+  @Test
+  public void invalidCursorIsABadRequest() throws Exception {
+    putComment("Comment", 1);
+
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getParameter(CURSOR)).thenReturn("not a cursor");
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+    servlet.doGet(request, response);
+
+    verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+  }
+
+  @Test
+  public void postedCommentsStoreTheirJSON() throws Exception {
+    String text = "A \"quoted\" <b>comment</b>\nwith \\ and \u00e9";
+    post(text, null, null);
+
+    Entity entity = DatastoreServiceFactory.getDatastoreService()
+        .prepare(new Query(COMMENTPATH)).asSingleEntity();
+    Comment comment = new Comment.Builder().withEntity(entity).build();
+    Assert.assertEquals(text, comment.getComment());
+    Assert.assertEquals(
+        Common.getJSONString(comment), ((Text) entity.getProperty(JSONPROPERTY)).getValue());
+  }
+
+  @Test
+  public void pagesOfStoredJSONAreValidJSON() throws Exception {
+    JsonObject empty = parseStrictly(getBody("2", null, null));
+    Assert.assertEquals(0, empty.getAsJsonArray("comments").size());
+    Assert.assertFalse(empty.has(CURSOR));
+
+    putComment("Old \"comment\"", 1);
+    post("New \"comment\"\n", null, null);
+    // Posts are stamped with the current time, so let it move on to keep their order
+    Thread.sleep(5);
+    post("Newest comment", null, null);
+
+    // The first page comes from the cache and has a cursor, and the page after it is read from
+    // datastore and is the last one
+    JsonObject first = parseStrictly(getBody("2", null, null));
+    Assert.assertEquals("Newest comment", getRawText(first.getAsJsonArray("comments").get(0)));
+    Assert.assertEquals("New \"comment\"\n",
+        getRawText(first.getAsJsonArray("comments").get(1)));
+    JsonObject last = parseStrictly(getBody("2", first.get(CURSOR).getAsString(), null));
+    Assert.assertEquals(1, last.getAsJsonArray("comments").size());
+    Assert.assertEquals("Old \"comment\"", getRawText(last.getAsJsonArray("comments").get(0)));
+    Assert.assertFalse(last.has(CURSOR));
+  }
+
+  @Test
+  public void commentCountIsKeptPerSession() throws Exception {
+    HttpSession sessionA = newSession();
+    HttpSession sessionB = newSession();
+    for (int i = 0; i < 5; i++) {
+      post("Comment " + i, null, null);
+    }
+
+    post("Comment 5", "1", sessionA);
+    post("Comment 6", "4", sessionB);
+
+    Assert.assertEquals(1, get(null, sessionA).getAsJsonArray("comments").size());
+    Assert.assertEquals(4, get(null, sessionB).getAsJsonArray("comments").size());
+    Assert.assertEquals(DEFAULTCOMMENTCOUNT, get(null, null).getAsJsonArray("comments").size());
+  }
+
+  @Test
+  public void concurrentRequestsGetConsistentResponses() throws Exception {
+    int initialComments = 10;
+    for (int i = 0; i < initialComments; i++) {
+      post("Initial " + i, null, null);
+    }
+
+    // The local services look up the test environment per thread, so share it with the workers.
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    int threadCount = 8;
+    int requestsPerThread = 25;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int t = 0; t < threadCount; t++) {
+        int thread = t;
+        Callable<Void> task = () -> {
+          ApiProxy.setEnvironmentForCurrentThread(environment);
+          HttpSession session = newSession();
+          int sessionCount = 1 + thread;
+          start.await();
+          for (int i = 0; i < requestsPerThread; i++) {
+            if (i % 5 == 0) {
+              // Posting changes this session's count, and only this session's
+              post("Thread " + thread + " comment " + i, String.valueOf(sessionCount), session);
+              continue;
+            }
+
+            // Every page has exactly the requested number of comments, newest first, whatever the
+            // other threads are doing
+            int count = 1 + (thread + i) % 7;
+            checkPage(get(String.valueOf(count), null), count);
+            if (i > 5) {
+              checkPage(get(null, session), sessionCount);
+            }
+          }
+          return null;
+        };
+        futures.add(executor.submit(task));
+      }
+
+      start.countDown();
+      for (Future<?> future : futures) {
+        // Rethrows any assertion that failed on a worker thread
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    int expectedComments = initialComments + threadCount * (requestsPerThread / 5);
+    Assert.assertEquals(expectedComments, DatastoreServiceFactory.getDatastoreService()
+        .prepare(new Query(COMMENTPATH)).countEntities());
+  }
+
+  private static void checkPage(JsonObject page, int count) {
+    JsonArray comments = page.getAsJsonArray("comments");
+    Assert.assertEquals(count, comments.size());
+    long previous = Long.MAX_VALUE;
+    for (JsonElement comment : comments) {
+      long timeStamp = comment.getAsJsonObject().get("timeStamp").getAsLong();
+      Assert.assertTrue(timeStamp <= previous);
+      previous = timeStamp;
+    }
+  }
+
+  // Store a comment the way comments from before the pre-rendered json were stored
+  private static void putComment(String text, long timestamp) {
+    Entity entity = new Entity(COMMENTPATH);
+    entity.setProperty(EMAILPROPERTY, "user@example.com");
+    entity.setProperty(RAWTEXTPROPERTY, text);
+    entity.setProperty(IMAGEURLPROPERTY, "");
+    entity.setProperty(TIMESTAMPPROPERTY, timestamp);
+    DatastoreServiceFactory.getDatastoreService().put(entity);
+  }
+
+  private static String getRawText(JsonElement comment) {
+    return comment.getAsJsonObject().get("rawText").getAsString();
+  }
+
+  private static HttpSession newSession() {
+    Map<String, Object> attributes = new HashMap<>();
+    HttpSession session = mock(HttpSession.class);
+    doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+        .when(session).setAttribute(anyString(), any());
+    when(session.getAttribute(anyString()))
+        .thenAnswer(invocation -> attributes.get(invocation.getArgument(0)));
+    return session;
+  }
+
+  // Parse a whole response body, failing on anything that JsonParser would leniently accept
+  private static JsonObject parseStrictly(String body) throws Exception {
+    JsonReader reader = new JsonReader(new StringReader(body));
+    reader.setLenient(false);
+    JsonObject page = new Gson().getAdapter(JsonObject.class).read(reader);
+    Assert.assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+    return page;
+  }
+
+  private JsonObject get(String commentCount, HttpSession session) throws Exception {
+    return new JsonParser().parse(getBody(commentCount, null, session)).getAsJsonObject();
+  }
+
+  private String getBody(String commentCount, String cursor, HttpSession session)
+      throws Exception {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getParameter(COMMENTCOUNT)).thenReturn(commentCount);
+    when(request.getParameter(CURSOR)).thenReturn(cursor);
+    when(request.getSession(false)).thenReturn(session);
+
+    StringWriter body = new StringWriter();
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getWriter()).thenReturn(new PrintWriter(body));
+
+    servlet.doGet(request, response);
+    verify(response, never()).sendError(anyInt(), anyString());
+    return body.toString();
+  }
+
+  private void post(String text, String commentCount, HttpSession session) throws Exception {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getParameter(TEXTINPUT)).thenReturn(text);
+    when(request.getParameter(COMMENTCOUNT)).thenReturn(commentCount);
+    when(request.getSession()).thenReturn(session);
+    when(request.getAttribute(UPLOADS_ATTRIBUTE)).thenReturn(new HashMap<>());
+
+    servlet.doPost(request, mock(HttpServletResponse.class));
+  }
+}
@@ -0,0 +1,186 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import static com.google.sps.other.Constants.*;
+import static org.mockito.Mockito.*;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class DeleteDataWorkerServletTest {
+  private static final String JOB_ID = "test-job";
+
+  private final LocalServiceTestHelper helper = new LocalServiceTestHelper(
+      new LocalDatastoreServiceTestConfig().setDefaultHighRepJobPolicyUnappliedJobPercentage(0));
+
+  private DatastoreService datastore;
+  private DeleteDataWorkerServlet servlet;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    datastore = DatastoreServiceFactory.getDatastoreService();
+    servlet = new DeleteDataWorkerServlet();
+    servlet.init();
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void deletesEveryCommentAndCountsThem() throws Exception {
+    int commentCount = 2 * DELETEBATCHSIZE + 7;
+    putComments(commentCount);
+    putProgress(null);
+
+    HttpServletResponse response = runTask();
+
+    verify(response, never()).sendError(anyInt(), anyString());
+    Assert.assertEquals(0, datastore.prepare(new Query(COMMENTPATH)).countEntities());
+    Entity progress = getProgress();
+    Assert.assertEquals((long) commentCount, progress.getProperty(DELETEDPROPERTY));
+    Assert.assertEquals(true, progress.getProperty(DONEPROPERTY));
+    Assert.assertEquals(false, progress.getProperty(FAILEDPROPERTY));
+  }
+
+  @Test
+  public void repeatedTaskDoesntCountTwice() throws Exception {
+    putComments(DELETEBATCHSIZE + 1);
+    putProgress(null);
+
+    runTask();
+    runTask();
+
+    Assert.assertEquals((long) DELETEBATCHSIZE + 1, getProgress().getProperty(DELETEDPROPERTY));
+  }
+
+  @Test
+  public void invalidCursorDropsTheTaskAndFailsTheJob() throws Exception {
+    putComments(3);
+    putProgress("not a cursor");
+
+    HttpServletResponse response = runTask();
+
+    // A task that ends without an error isn't retried
+    verify(response, never()).sendError(anyInt(), anyString());
+    verify(response, never()).setStatus(anyInt());
+    Assert.assertEquals(3, datastore.prepare(new Query(COMMENTPATH)).countEntities());
+    // The job has to end too, or clients would wait on it forever
+    Entity progress = getProgress();
+    Assert.assertEquals(true, progress.getProperty(DONEPROPERTY));
+    Assert.assertEquals(true, progress.getProperty(FAILEDPROPERTY));
+  }
+
+  @Test
+  public void batchedDeleteIsFasterThanDeletingOneKeyAtATime() throws Exception {
+    // Time the old purge, which loaded every full comment and deleted them one call at a time,
+    // against a worker run on the local datastore. Take the best of a few rounds of each so a
+    // slow first round or a pause of the JVM doesn't decide the comparison.
+    int commentCount = 2 * DELETEBATCHSIZE;
+    long perKeyNanos = Long.MAX_VALUE;
+    long batchedNanos = Long.MAX_VALUE;
+    for (int round = 0; round < 3; round++) {
+      putComments(commentCount);
+      long start = System.nanoTime();
+      Query query = new Query(COMMENTPATH).addSort(TIMESTAMPPROPERTY, SortDirection.ASCENDING);
+      for (Entity comment : datastore.prepare(query).asIterable()) {
+        datastore.delete(comment.getKey());
+      }
+      perKeyNanos = Math.min(perKeyNanos, System.nanoTime() - start);
+      Assert.assertEquals(0, datastore.prepare(new Query(COMMENTPATH)).countEntities());
+
+      putComments(commentCount);
+      putProgress(null);
+      start = System.nanoTime();
+      runTask();
+      batchedNanos = Math.min(batchedNanos, System.nanoTime() - start);
+      Assert.assertEquals(0, datastore.prepare(new Query(COMMENTPATH)).countEntities());
+    }
+
+    System.out.printf("Deleting %d comments: %.1f ms one key at a time, %.1f ms in batches%n",
+        commentCount, perKeyNanos / 1e6, batchedNanos / 1e6);
+    Assert.assertTrue(batchedNanos < perKeyNanos);
+  }
+
+  @Test
+  public void requestsFromOutsideTheQueueAreRejected() throws Exception {
+    putComments(3);
+    putProgress(null);
+
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getParameter(JOB)).thenReturn(JOB_ID);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    servlet.doPost(request, response);
+
+    verify(response).sendError(eq(HttpServletResponse.SC_FORBIDDEN), anyString());
+    Assert.assertEquals(3, datastore.prepare(new Query(COMMENTPATH)).countEntities());
+  }
+
+  private HttpServletResponse runTask() throws Exception {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getHeader("X-AppEngine-QueueName")).thenReturn("default");
+    when(request.getParameter(JOB)).thenReturn(JOB_ID);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    servlet.doPost(request, response);
+    return response;
+  }
+
+  private void putComments(int count) {
+    List<Entity> comments = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Entity comment = new Entity(COMMENTPATH);
+      comment.setProperty(RAWTEXTPROPERTY, "Comment " + i);
+      comment.setProperty(TIMESTAMPPROPERTY, (long) i);
+      comments.add(comment);
+    }
+    datastore.put(comments);
+  }
+
+  private void putProgress(String cursor) {
+    Entity progress = new Entity(DELETIONPATH, JOB_ID);
+    progress.setUnindexedProperty(DELETEDPROPERTY, 0L);
+    progress.setUnindexedProperty(DONEPROPERTY, false);
+    progress.setUnindexedProperty(FAILEDPROPERTY, false);
+    if (cursor != null) {
+      progress.setUnindexedProperty(CURSOR, cursor);
+    }
+    datastore.put(progress);
+  }
+
+  private Entity getProgress() throws Exception {
+    return datastore.get(KeyFactory.createKey(DELETIONPATH, JOB_ID));
+  }
+}
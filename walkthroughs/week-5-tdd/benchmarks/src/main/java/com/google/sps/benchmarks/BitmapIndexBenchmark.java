@@ -0,0 +1,103 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.BitmapIndex;
+import com.google.sps.Event;
+import com.google.sps.EventIndex;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the minute bitmaps of {@code BitmapIndex} with the interval lists of
+ * {@code EventIndex} on dense calendars, where each person has many events and requests name many
+ * people.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BitmapIndexBenchmark {
+  private static final int REQUEST_COUNT = 64;
+  private static final long SEED = 15;
+
+  @Param({"10000", "50000"})
+  public int eventCount;
+
+  @Param({"4"})
+  public int attendeesPerEvent;
+
+  @Param({"0.5"})
+  public double busyFraction;
+
+  @Param({"16", "128"})
+  public int requestSize;
+
+  @Param({"1000"})
+  public int peopleCount;
+
+  @Param({"15"})
+  public int meetingDuration;
+
+  private EventIndex eventIndex;
+  private BitmapIndex bitmapIndex;
+  private List<MeetingRequest> requests;
+  private FindMeetingQuery query;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    CalendarGenerator generator = new CalendarGenerator(SEED, peopleCount);
+    List<Event> events = generator.events(eventCount, attendeesPerEvent, busyFraction);
+    requests = generator.requests(REQUEST_COUNT, requestSize, meetingDuration);
+    eventIndex = new EventIndex(events);
+    bitmapIndex = new BitmapIndex(events);
+    query = new FindMeetingQuery();
+  }
+
+  @Benchmark
+  public Collection<TimeRange> intervals() {
+    return query.query(eventIndex, nextRequest());
+  }
+
+  @Benchmark
+  public Collection<TimeRange> bitmaps() {
+    return query.query(bitmapIndex, nextRequest());
+  }
+
+  private MeetingRequest nextRequest() {
+    MeetingRequest request = requests.get(next);
+    next = (next + 1) % REQUEST_COUNT;
+    return request;
+  }
+}
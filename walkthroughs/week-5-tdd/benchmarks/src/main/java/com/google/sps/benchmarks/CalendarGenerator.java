@@ -0,0 +1,135 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.Room;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds synthetic single-day calendars and meeting requests for benchmarks. Everything is drawn
+ * from a seeded {@code Random}, so the same settings always produce the same calendar.
+ */
+public final class CalendarGenerator {
+  private final Random random;
+  private final int peopleCount;
+
+  /**
+   * Creates a generator for a company of {@code peopleCount} people.
+   */
+  public CalendarGenerator(long seed, int peopleCount) {
+    if (peopleCount < 1) {
+      throw new IllegalArgumentException("peopleCount must be at least 1");
+    }
+
+    this.random = new Random(seed);
+    this.peopleCount = peopleCount;
+  }
+
+  /**
+   * Returns the name of the person with the number {@code index}.
+   */
+  public static String person(int index) {
+    return "Person " + index;
+  }
+
+  /**
+   * Creates {@code eventCount} events with {@code attendeesPerEvent} attendees each.
+   *
+   * @param busyFraction How much of an average person's day their events cover, before they
+   *     overlap. Higher values give longer events that overlap more often.
+   */
+  public List<Event> events(int eventCount, int attendeesPerEvent, double busyFraction) {
+    int dayLength = TimeRange.WHOLE_DAY.duration();
+
+    // Size the events so that each person's events add up to about busyFraction of the day
+    double eventsPerPerson = (double) eventCount * attendeesPerEvent / peopleCount;
+    int meanDuration = (int) Math.max(1, Math.min(dayLength, busyFraction * dayLength
+        / Math.max(1, eventsPerPerson)));
+
+    List<Event> events = new ArrayList<>(eventCount);
+    for (int i = 0; i < eventCount; i++) {
+      int duration = 1 + random.nextInt(2 * meanDuration);
+      int start = random.nextInt(Math.max(1, dayLength - duration + 1));
+      duration = Math.min(duration, dayLength - start);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          people(attendeesPerEvent)));
+    }
+    return events;
+  }
+
+  /**
+   * Creates {@code count} requests for meetings of {@code duration} minutes. Each request names
+   * {@code requestSize} people, and one in four of them is optional.
+   */
+  public List<MeetingRequest> requests(int count, int requestSize, int duration) {
+    List<MeetingRequest> requests = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      List<String> people = people(requestSize);
+      int optionalCount = requestSize / 4;
+      MeetingRequest request =
+          new MeetingRequest(people.subList(optionalCount, people.size()), duration);
+      for (String person : people.subList(0, optionalCount)) {
+        request.addOptionalAttendee(person);
+      }
+      requests.add(request);
+    }
+    return requests;
+  }
+
+  /**
+   * Creates {@code count} rooms that seat between 2 and 20 people.
+   */
+  public List<Room> rooms(int count) {
+    List<Room> rooms = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      rooms.add(new Room("Room " + i, 2 + random.nextInt(19)));
+    }
+    return rooms;
+  }
+
+  /**
+   * Creates {@code bookingsPerRoom} events of 15 to 60 minutes for every room in {@code rooms},
+   * each with one person and the room.
+   */
+  public List<Event> roomBookings(List<Room> rooms, int bookingsPerRoom) {
+    int dayLength = TimeRange.WHOLE_DAY.duration();
+    List<Event> events = new ArrayList<>(rooms.size() * bookingsPerRoom);
+    for (Room room : rooms) {
+      for (int i = 0; i < bookingsPerRoom; i++) {
+        int duration = 15 + random.nextInt(46);
+        int start = random.nextInt(dayLength - duration + 1);
+        List<String> attendees = people(1);
+        attendees.add(room.getName());
+        events.add(new Event("Booking " + i, TimeRange.fromStartDuration(start, duration),
+            attendees));
+      }
+    }
+    return events;
+  }
+
+  // Pick {@code count} people at random. The same person may be picked more than once.
+  private List<String> people(int count) {
+    List<String> people = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      people.add(person(random.nextInt(peopleCount)));
+    }
+    return people;
+  }
+}
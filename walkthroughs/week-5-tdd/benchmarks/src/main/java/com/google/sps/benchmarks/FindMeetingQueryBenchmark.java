@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.Calendar;
+import com.google.sps.Event;
+import com.google.sps.EventIndex;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code FindMeetingQuery} on synthetic calendars. Each benchmark answers one request per
+ * call, cycling through a fixed set of requests so that no single request's answer dominates.
+ *
+ * <p>Throughput and sampled latency (with percentiles) are reported together. Add {@code -prof gc}
+ * to the command line to also report the allocation rate per call.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FindMeetingQueryBenchmark {
+  private static final int REQUEST_COUNT = 64;
+  private static final long SEED = 42;
+
+  @Param({"100", "1000", "10000"})
+  public int eventCount;
+
+  @Param({"1", "4"})
+  public int attendeesPerEvent;
+
+  // How much of an average person's day their events cover.
+  @Param({"0.2", "0.8"})
+  public double busyFraction;
+
+  @Param({"2", "16"})
+  public int requestSize;
+
+  @Param({"500"})
+  public int peopleCount;
+
+  @Param({"30"})
+  public int meetingDuration;
+
+  private List<Event> events;
+  private EventIndex index;
+  private Calendar calendar;
+  private List<MeetingRequest> requests;
+  private FindMeetingQuery query;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    CalendarGenerator generator = new CalendarGenerator(SEED, peopleCount);
+    events = generator.events(eventCount, attendeesPerEvent, busyFraction);
+    requests = generator.requests(REQUEST_COUNT, requestSize, meetingDuration);
+    index = new EventIndex(events);
+    calendar = new Calendar(events);
+    query = new FindMeetingQuery();
+  }
+
+  /**
+   * Answers a request by scanning every event.
+   */
+  @Benchmark
+  public Collection<TimeRange> scan() {
+    return query.query(events, nextRequest());
+  }
+
+  /**
+   * Answers a request from a prebuilt {@code EventIndex}.
+   */
+  @Benchmark
+  public Collection<TimeRange> index() {
+    return query.query(index, nextRequest());
+  }
+
+  /**
+   * Answers a request from the per-attendee trees of a {@code Calendar}.
+   */
+  @Benchmark
+  public Collection<TimeRange> calendar() {
+    return query.query(calendar, nextRequest());
+  }
+
+  /**
+   * Finds only the earliest possible time from a prebuilt {@code EventIndex}.
+   */
+  @Benchmark
+  public Optional<TimeRange> earliest() {
+    return query.findEarliest(index, nextRequest());
+  }
+
+  private MeetingRequest nextRequest() {
+    MeetingRequest request = requests.get(next);
+    next = (next + 1) % REQUEST_COUNT;
+    return request;
+  }
+}
@@ -0,0 +1,99 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.sps.MeetingJson;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the JSON handling of {@code QueryServlet}: reading a meeting request and writing the
+ * answer. {@code reflection} is the old path, a new {@code Gson} per request binding by reflection
+ * and building the response as a string. {@code streaming} uses the shared {@code MeetingJson}
+ * adapters and writes straight to the output.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MeetingJsonBenchmark {
+  @Param({"4", "32"})
+  public int attendeeCount;
+
+  @Param({"8"})
+  public int rangeCount;
+
+  private String requestJson;
+  private List<TimeRange> answer;
+  private StringWriter output;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    StringBuilder json = new StringBuilder("{\"attendees\": [");
+    for (int i = 0; i < attendeeCount; i++) {
+      json.append(i == 0 ? "" : ", ").append('"').append(CalendarGenerator.person(i)).append('"');
+    }
+    json.append("], \"optional_attendees\": [\"")
+        .append(CalendarGenerator.person(attendeeCount))
+        .append("\"], \"duration\": \"30\"}");
+    requestJson = json.toString();
+
+    answer = new ArrayList<>();
+    for (int i = 0; i < rangeCount; i++) {
+      answer.add(TimeRange.fromStartDuration(i * 120, 60));
+    }
+    output = new StringWriter();
+  }
+
+  @Benchmark
+  public StringWriter reflection() {
+    Gson gson = new Gson();
+    MeetingRequest request = gson.fromJson(new StringReader(requestJson), MeetingRequest.class);
+    output.getBuffer().setLength(0);
+    output.write(gson.toJson(answer));
+    output.write(Long.toString(request.getDuration()));
+    return output;
+  }
+
+  @Benchmark
+  public StringWriter streaming() throws IOException {
+    MeetingRequest request = MeetingJson.readMeetingRequest(new StringReader(requestJson));
+    output.getBuffer().setLength(0);
+    MeetingJson.writeTimeRanges(answer, output);
+    output.write(Long.toString(request.getDuration()));
+    return output;
+  }
+}
@@ -0,0 +1,92 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.EventIndex;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures answering a batch of requests against one index, and a single request that is large
+ * enough to merge its busy intervals in parallel.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryAllBenchmark {
+  private static final long SEED = 7;
+
+  @Param({"10000"})
+  public int eventCount;
+
+  @Param({"5000"})
+  public int peopleCount;
+
+  @Param({"256"})
+  public int batchSize;
+
+  @Param({"2048"})
+  public int largeRequestSize;
+
+  private EventIndex index;
+  private List<MeetingRequest> batch;
+  private MeetingRequest largeRequest;
+  private FindMeetingQuery parallelQuery;
+  private FindMeetingQuery sequentialQuery;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    CalendarGenerator generator = new CalendarGenerator(SEED, peopleCount);
+    index = new EventIndex(generator.events(eventCount, 2, 0.3));
+    batch = generator.requests(batchSize, 4, 30);
+    largeRequest = generator.requests(1, largeRequestSize, 5).get(0);
+    parallelQuery = new FindMeetingQuery();
+    sequentialQuery = new FindMeetingQuery(Integer.MAX_VALUE);
+  }
+
+  @Benchmark
+  public List<Collection<TimeRange>> queryAll() {
+    return parallelQuery.queryAll(index, batch);
+  }
+
+  @Benchmark
+  public Collection<TimeRange> largeRequestParallel() {
+    return parallelQuery.query(index, largeRequest);
+  }
+
+  @Benchmark
+  public Collection<TimeRange> largeRequestSequential() {
+    return sequentialQuery.query(index, largeRequest);
+  }
+}
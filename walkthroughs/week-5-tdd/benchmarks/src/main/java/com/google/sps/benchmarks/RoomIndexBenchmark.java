@@ -0,0 +1,134 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.Event;
+import com.google.sps.EventIndex;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.Room;
+import com.google.sps.RoomIndex;
+import com.google.sps.RoomTimeRange;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@code queryRooms}, which works out attendee availability once and then checks each
+ * room's bookings in {@code RoomIndex}, with running a full query per room that names the room as
+ * one more attendee.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RoomIndexBenchmark {
+  private static final int REQUEST_COUNT = 64;
+  private static final long SEED = 18;
+
+  @Param({"2000"})
+  public int eventCount;
+
+  @Param({"0.2"})
+  public double busyFraction;
+
+  @Param({"100", "500"})
+  public int roomCount;
+
+  @Param({"8"})
+  public int bookingsPerRoom;
+
+  @Param({"4"})
+  public int requestSize;
+
+  @Param({"1000"})
+  public int peopleCount;
+
+  @Param({"30"})
+  public int meetingDuration;
+
+  private List<Room> rooms;
+  private EventIndex eventIndex;
+  private RoomIndex roomIndex;
+  private List<MeetingRequest> requests;
+  private FindMeetingQuery query;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    CalendarGenerator generator = new CalendarGenerator(SEED, peopleCount);
+    List<Event> events = generator.events(eventCount, 4, busyFraction);
+    rooms = generator.rooms(roomCount);
+    events.addAll(generator.roomBookings(rooms, bookingsPerRoom));
+    requests = generator.requests(REQUEST_COUNT, requestSize, meetingDuration);
+    eventIndex = new EventIndex(events);
+    roomIndex = new RoomIndex(rooms, events);
+    query = new FindMeetingQuery();
+
+    // Without any free time there would be no rooms to check
+    for (MeetingRequest request : requests) {
+      if (query.query(eventIndex, request).isEmpty()) {
+        throw new IllegalStateException("A request has no free time; lower busyFraction");
+      }
+    }
+  }
+
+  @Benchmark
+  public List<RoomTimeRange> roomIndex() {
+    return query.queryRooms(eventIndex, roomIndex, nextRequest());
+  }
+
+  @Benchmark
+  public List<Collection<TimeRange>> queryPerRoom() {
+    MeetingRequest request = nextRequest();
+    int seats = request.getAttendees().size() + request.getOptionalAttendees().size();
+    List<Collection<TimeRange>> answers = new ArrayList<>();
+    for (Room room : rooms) {
+      if (room.getCapacity() < seats) {
+        continue;
+      }
+      List<String> attendees = new ArrayList<>(request.getAttendees());
+      attendees.add(room.getName());
+      MeetingRequest roomRequest = new MeetingRequest(attendees, request.getDuration());
+      for (String optional : request.getOptionalAttendees()) {
+        roomRequest.addOptionalAttendee(optional);
+      }
+      answers.add(query.query(eventIndex, roomRequest));
+    }
+    return answers;
+  }
+
+  private MeetingRequest nextRequest() {
+    MeetingRequest request = requests.get(next);
+    next = (next + 1) % REQUEST_COUNT;
+    return request;
+  }
+}
@@ -0,0 +1,118 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns attendee names to dense int ids (0, 1, 2, ...), so that sets of attendees can be stored
+ * as bit sets and compared a word at a time instead of hashing strings. Ids are never reused or
+ * removed, so only events intern names. Meeting requests, which come from clients, only look names
+ * up. The dictionary is safe to use from multiple threads.
+ */
+public final class AttendeeDictionary {
+  private static final AttendeeDictionary INSTANCE = new AttendeeDictionary();
+
+  private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+  private final List<String> namesById = new ArrayList<>();
+
+  private AttendeeDictionary() {
+    // Use getInstance() instead.
+  }
+
+  /**
+   * Returns the dictionary shared by every {@code Event} and {@code MeetingRequest}.
+   */
+  public static AttendeeDictionary getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the id of {@code name}, giving it the next unused id if it doesn't have one yet.
+   */
+  public int intern(String name) {
+    Integer id = idsByName.get(name);
+    if (id != null) {
+      return id;
+    }
+
+    synchronized (namesById) {
+      id = idsByName.get(name);
+      if (id == null) {
+        id = namesById.size();
+        namesById.add(name);
+        idsByName.put(name, id);
+      }
+      return id;
+    }
+  }
+
+  /**
+   * Returns the id of {@code name}, or -1 if it has never been interned.
+   */
+  public int getId(String name) {
+    Integer id = idsByName.get(name);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Returns the name with the id {@code id}.
+   */
+  public String getName(int id) {
+    synchronized (namesById) {
+      return namesById.get(id);
+    }
+  }
+
+  /**
+   * Returns the number of interned names. Every id is less than this number.
+   */
+  public int size() {
+    synchronized (namesById) {
+      return namesById.size();
+    }
+  }
+
+  /**
+   * Returns the ids of the names in {@code names} that have been interned, as a bit set. Names
+   * without an id are skipped rather than interned.
+   */
+  BitSet getIds(Collection<String> names) {
+    BitSet ids = new BitSet();
+    for (String name : names) {
+      int id = getId(name);
+      if (id >= 0) {
+        ids.set(id);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Interns every name in {@code names} and returns their ids as a bit set.
+   */
+  BitSet internAll(Collection<String> names) {
+    BitSet ids = new BitSet();
+    for (String name : names) {
+      ids.set(intern(name));
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,166 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The sorted, distinct packed busy intervals of one attendee in one {@code CalendarVersion}. A
+ * change to the attendee doesn't copy their intervals: it makes a new node that records the one
+ * interval that was added or removed on top of the node before it. The array is only worked out
+ * the first time a query reads the node, and is then kept.
+ *
+ * <p>Working out the array cuts the node loose from the nodes before it, so old versions can be
+ * garbage collected. Writers keep the chains short by starting a new node from a full array once a
+ * node is {@code MAX_CHAIN} changes away from one. Nodes can be read from any number of threads.
+ */
+final class AttendeeIntervals {
+  static final AttendeeIntervals EMPTY = new AttendeeIntervals(new long[0]);
+
+  /**
+   * The most changes a node records on top of the last node that was made from a full array.
+   */
+  static final int MAX_CHAIN = 32;
+
+  // The intervals, or null until they are worked out. Set before {@code previous} is cleared.
+  private volatile long[] intervals;
+
+  // The node this one changes, or null once {@code intervals} is known.
+  private volatile AttendeeIntervals previous;
+
+  // The interval this node adds or removes. Unused for nodes made from a full array.
+  private final long interval;
+  private final boolean added;
+
+  // The number of changes since the last node that was made from a full array.
+  private final int chain;
+
+  /**
+   * Creates a node with {@code intervals}, which must be sorted and distinct and must not be
+   * modified afterwards.
+   */
+  AttendeeIntervals(long[] intervals) {
+    this.intervals = intervals;
+    this.previous = null;
+    this.interval = 0;
+    this.added = false;
+    this.chain = 0;
+  }
+
+  private AttendeeIntervals(AttendeeIntervals previous, long interval, boolean added) {
+    this.previous = previous;
+    this.interval = interval;
+    this.added = added;
+    this.chain = previous.chain + 1;
+  }
+
+  /**
+   * Returns a node with {@code interval} added, which must not be in this node.
+   */
+  AttendeeIntervals with(long interval) {
+    return new AttendeeIntervals(this, interval, true);
+  }
+
+  /**
+   * Returns a node with {@code interval} removed, which must be in this node.
+   */
+  AttendeeIntervals without(long interval) {
+    return new AttendeeIntervals(this, interval, false);
+  }
+
+  /**
+   * Returns how many changes this node is away from the last node made from a full array.
+   */
+  int chainLength() {
+    return chain;
+  }
+
+  /**
+   * Returns the packed intervals, sorted and distinct. The returned array must not be modified.
+   */
+  long[] get() {
+    long[] result = intervals;
+    if (result != null) {
+      return result;
+    }
+
+    // Walk back to the nearest node whose intervals are known. Another thread may be working out
+    // the same nodes, which only costs time: both get the same array.
+    AttendeeIntervals[] changes = new AttendeeIntervals[chain];
+    int count = 0;
+    AttendeeIntervals node = this;
+    long[] base = node.intervals;
+    while (base == null) {
+      AttendeeIntervals before = node.previous;
+      if (before == null) {
+        // Worked out since it was last read, and {@code intervals} is set before this is cleared
+        base = node.intervals;
+        break;
+      }
+      changes[count++] = node;
+      node = before;
+      base = node.intervals;
+    }
+
+    result = replay(base, changes, count);
+    intervals = result;
+    previous = null;
+    return result;
+  }
+
+  // Apply {@code changes}, newest first, to {@code base} in one pass
+  private static long[] replay(long[] base, AttendeeIntervals[] changes, int count) {
+    // Only the last change to each interval counts
+    Map<Long, Boolean> lastChanges = new HashMap<>();
+    for (int i = count - 1; i >= 0; i--) {
+      lastChanges.put(changes[i].interval, changes[i].added);
+    }
+    long[] addedIntervals = new long[lastChanges.size()];
+    long[] removedIntervals = new long[lastChanges.size()];
+    int addedCount = 0;
+    int removedCount = 0;
+    for (Map.Entry<Long, Boolean> change : lastChanges.entrySet()) {
+      if (change.getValue()) {
+        addedIntervals[addedCount++] = change.getKey();
+      } else {
+        removedIntervals[removedCount++] = change.getKey();
+      }
+    }
+    Arrays.sort(addedIntervals, 0, addedCount);
+    Arrays.sort(removedIntervals, 0, removedCount);
+
+    // Merge the added intervals into the base and leave out the removed ones
+    long[] result = new long[base.length + addedCount];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < base.length || j < addedCount) {
+      long next;
+      if (j == addedCount || (i < base.length && base[i] <= addedIntervals[j])) {
+        next = base[i++];
+      } else {
+        next = addedIntervals[j++];
+      }
+      if ((size > 0 && result[size - 1] == next)
+          || Arrays.binarySearch(removedIntervals, 0, removedCount, next) >= 0) {
+        continue;
+      }
+      result[size++] = next;
+    }
+    return size == result.length ? result : Arrays.copyOf(result, size);
+  }
+}
@@ -0,0 +1,202 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+
+/**
+ * An index from each attendee to a bitmap of the minutes of the day they are busy. A day is only
+ * 1440 minutes, so a bitmap is 23 {@code long}s, and the busy time of a whole request is a handful
+ * of word-wise ORs no matter how many events the attendees have. This pays off for dense calendars
+ * where people have many events each.
+ *
+ * <p>Bit {@code m} of word {@code m / 64} is set if the attendee is busy in minute {@code m}. The
+ * packed intervals are kept as well, for optional attendees whose short or all-day events must be
+ * left out depending on the meeting. Indexes are read-only and can be shared between threads.
+ */
+public final class BitmapIndex implements BusyIntervalSource {
+  /** The number of {@code long} words in the bitmap of a day. */
+  static final int WORDS_PER_DAY = (TimeRange.WHOLE_DAY.duration() + 63) / 64;
+
+  private static final long[] NO_MINUTES = new long[WORDS_PER_DAY];
+
+  // The busy minutes of each attendee, indexed by the attendee's id in the shared
+  // {@code AttendeeDictionary}.
+  private final long[][] minutesById;
+
+  // The same busy time as packed intervals, sorted by start.
+  private final EventIndex intervals;
+
+  // The shortest event of each attendee, and whether they have an event that lasts the whole day.
+  // An optional attendee can use the bitmap as is if no event would be left out of the meeting.
+  private final int[] shortestEventById;
+  private final boolean[] hasWholeDayEventById;
+
+  /**
+   * Creates an index of {@code events}.
+   *
+   * @param events The events to index. Must be non-null.
+   */
+  public BitmapIndex(Collection<Event> events) {
+    intervals = new EventIndex(events);
+
+    int attendeeCount = AttendeeDictionary.getInstance().size();
+    minutesById = new long[attendeeCount][];
+    shortestEventById = new int[attendeeCount];
+    hasWholeDayEventById = new boolean[attendeeCount];
+    for (int id = 0; id < attendeeCount; id++) {
+      long[] attendeeIntervals = intervals.getIntervals(id);
+      if (attendeeIntervals.length == 0) {
+        minutesById[id] = NO_MINUTES;
+        continue;
+      }
+
+      long[] minutes = new long[WORDS_PER_DAY];
+      int shortest = Integer.MAX_VALUE;
+      for (long interval : attendeeIntervals) {
+        // Events may run past either end of the day, but only minutes within it have a bit
+        int start = clampToDay(IntervalBuffer.start(interval));
+        int end = clampToDay(IntervalBuffer.end(interval));
+        setRange(minutes, start, end);
+        // Clamping can only make an event look shorter or whole-day, which sends the optional
+        // attendee down the exact per-interval path below, so the stats stay safe to use.
+        shortest = Math.min(shortest, end - start);
+        if (start == TimeRange.WHOLE_DAY.start() && end == TimeRange.WHOLE_DAY.end()) {
+          hasWholeDayEventById[id] = true;
+        }
+      }
+      minutesById[id] = minutes;
+      shortestEventById[id] = shortest;
+    }
+  }
+
+  @Override
+  public void addIntervals(int id, IntervalBuffer buffer) {
+    intervals.addIntervals(id, buffer);
+  }
+
+  /**
+   * ORs the busy minutes of the attendee with the id {@code id} into {@code minutes}.
+   */
+  void orBusyMinutes(int id, long[] minutes) {
+    long[] busy = getMinutes(id);
+    for (int i = 0; i < WORDS_PER_DAY; i++) {
+      minutes[i] |= busy[i];
+    }
+  }
+
+  /**
+   * ORs the busy minutes of the optional attendee with the id {@code id} into {@code minutes},
+   * leaving out events that are shorter than the meeting or last the whole day.
+   */
+  void orOptionalBusyMinutes(int id, long meetingDuration, long[] minutes) {
+    if (id < 0 || id >= minutesById.length || minutesById[id] == NO_MINUTES) {
+      return;
+    }
+
+    // Usually no event is left out, so the whole bitmap can be used
+    if (shortestEventById[id] >= meetingDuration && !hasWholeDayEventById[id]) {
+      orBusyMinutes(id, minutes);
+      return;
+    }
+
+    for (long interval : intervals.getIntervals(id)) {
+      int start = IntervalBuffer.start(interval);
+      int end = IntervalBuffer.end(interval);
+      boolean wholeDay = start == TimeRange.WHOLE_DAY.start() && end == TimeRange.WHOLE_DAY.end();
+      if (end - start >= meetingDuration && !wholeDay) {
+        setRange(minutes, clampToDay(start), clampToDay(end));
+      }
+    }
+  }
+
+  // Clamp a minute to the range a bitmap of the day can hold
+  private static int clampToDay(int minute) {
+    return Math.max(TimeRange.START_OF_DAY, Math.min(minute, TimeRange.END_OF_DAY + 1));
+  }
+
+  private long[] getMinutes(int id) {
+    if (id < 0 || id >= minutesById.length) {
+      return NO_MINUTES;
+    }
+    return minutesById[id];
+  }
+
+  /**
+   * Sets the bits from {@code from} (inclusive) to {@code to} (exclusive), a word at a time.
+   */
+  static void setRange(long[] minutes, int from, int to) {
+    if (from >= to) {
+      return;
+    }
+
+    int firstWord = from >>> 6;
+    int lastWord = (to - 1) >>> 6;
+    // Shifts only use the low 6 bits, so these are the masks from bit {@code from % 64} up and
+    // from bit {@code (to - 1) % 64} down.
+    long firstMask = -1L << from;
+    long lastMask = -1L >>> -to;
+    if (firstWord == lastWord) {
+      minutes[firstWord] |= firstMask & lastMask;
+      return;
+    }
+
+    minutes[firstWord] |= firstMask;
+    for (int i = firstWord + 1; i < lastWord; i++) {
+      minutes[i] = -1L;
+    }
+    minutes[lastWord] |= lastMask;
+  }
+
+  /**
+   * Returns the first minute at or after {@code from} whose bit is clear, or {@code limit} if there
+   * is none before it.
+   */
+  static int nextFreeMinute(long[] minutes, int from, int limit) {
+    if (from >= limit) {
+      return limit;
+    }
+
+    int wordIndex = from >>> 6;
+    long word = ~minutes[wordIndex] & (-1L << from);
+    while (word == 0) {
+      if (++wordIndex == minutes.length) {
+        return limit;
+      }
+      word = ~minutes[wordIndex];
+    }
+    return Math.min(limit, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+  }
+
+  /**
+   * Returns the first minute at or after {@code from} whose bit is set, or {@code limit} if there
+   * is none before it.
+   */
+  static int nextBusyMinute(long[] minutes, int from, int limit) {
+    if (from >= limit) {
+      return limit;
+    }
+
+    int wordIndex = from >>> 6;
+    long word = minutes[wordIndex] & (-1L << from);
+    while (word == 0) {
+      if (++wordIndex == minutes.length) {
+        return limit;
+      }
+      word = minutes[wordIndex];
+    }
+    return Math.min(limit, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+  }
+}
@@ -0,0 +1,29 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * Anything that can look up the busy intervals of a single attendee, so that {@code
+ * FindMeetingQuery} only has to look at the people named in a request. Attendees are identified by
+ * their id in the shared {@code AttendeeDictionary}.
+ */
+interface BusyIntervalSource {
+  /**
+   * Adds the busy intervals of the attendee with the id {@code id} to {@code buffer}. Every event
+   * the attendee attends adds its own interval, so the intervals may overlap. Attendees without any
+   * events add nothing.
+   */
+  void addIntervals(int id, IntervalBuffer buffer);
+}
@@ -0,0 +1,259 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A calendar of events that can be changed after it is created. The calendar keeps the busy
+ * intervals of every attendee in a balanced search tree ordered by start time, so adding or
+ * removing an event only updates the trees of that event's attendees, in O(log n) time each.
+ *
+ * <p>Queries don't read the trees. After every change the calendar publishes a new immutable
+ * {@code CalendarVersion} through an {@code AtomicReference}. A version shares everything with the
+ * previous one except the O(log n) trie nodes that lead to the changed attendees, and each of those
+ * attendees only gets a small node that records the added or removed interval. Their sorted
+ * interval arrays are worked out the first time a query reads them, and rebuilt from the trees
+ * every {@code AttendeeIntervals.MAX_CHAIN} changes, so a change costs O(log n) time per attendee
+ * plus an amortized share of that rebuild. Readers take the latest version without locking, and a
+ * query that runs on one version sees every attendee as of the same change however many writers
+ * are busy.
+ *
+ * <p>Changes are synchronized with each other, so a calendar can be shared between threads.
+ */
+public final class Calendar {
+  // The busy intervals of each attendee, indexed by the attendee's id in the shared
+  // {@code AttendeeDictionary}. Each tree maps a packed interval to the number of events that have
+  // exactly that interval, so two identical events can be removed one at a time. Guarded by
+  // {@code this} and only read by writers.
+  private final List<TreeMap<Long, Integer>> intervalsById = new ArrayList<>();
+
+  // The latest published version. Readers never lock.
+  private final AtomicReference<CalendarVersion> latest =
+      new AtomicReference<>(CalendarVersion.EMPTY);
+
+  // The number of copies of each event in the calendar.
+  private final Map<Event, Integer> eventCounts = new HashMap<>();
+
+  // Told about every added and removed event.
+  private final List<CalendarListener> listeners = new CopyOnWriteArrayList<>();
+
+  private int size;
+
+  /**
+   * Creates an empty calendar.
+   */
+  public Calendar() {}
+
+  /**
+   * Creates a calendar that contains {@code events}.
+   *
+   * @param events The events to add. Must be non-null.
+   */
+  public Calendar(Collection<Event> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    // Publish a single version for all of the events instead of one per event
+    BitSet changedIds = new BitSet();
+    synchronized (this) {
+      for (Event event : events) {
+        if (event == null) {
+          throw new IllegalArgumentException("events cannot contain null");
+        }
+        record(event, changedIds);
+      }
+      latest.set(latest.get().next(size, changedIds,
+          id -> new AttendeeIntervals(toArray(intervalsById.get(id)))));
+    }
+  }
+
+  /**
+   * Adds {@code event} to the calendar. Adding the same event twice makes it count twice.
+   */
+  public synchronized void addEvent(Event event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event cannot be null");
+    }
+
+    BitSet changedIds = new BitSet();
+    record(event, changedIds);
+    publish(changedIds, event, true);
+    notifyListeners(event);
+  }
+
+  /**
+   * Removes one copy of {@code event} from the calendar. Returns {@code false} if the calendar
+   * doesn't contain the event.
+   */
+  public synchronized boolean removeEvent(Event event) {
+    Integer count = eventCounts.get(event);
+    if (count == null) {
+      return false;
+    }
+
+    if (count == 1) {
+      eventCounts.remove(event);
+    } else {
+      eventCounts.put(event, count - 1);
+    }
+    size--;
+
+    // Only attendees who no longer have any event with this interval change
+    BitSet changedIds = new BitSet();
+    TimeRange when = event.getWhen();
+    if (when.duration() > 0) {
+      long interval = IntervalBuffer.pack(when.start(), when.end());
+      AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+      for (String attendee : event.getAttendees()) {
+        int id = dictionary.getId(attendee);
+        Integer copiesLeft = intervalsById.get(id)
+            .computeIfPresent(interval, (key, copies) -> copies == 1 ? null : copies - 1);
+        if (copiesLeft == null) {
+          changedIds.set(id);
+        }
+      }
+    }
+    publish(changedIds, event, false);
+    notifyListeners(event);
+    return true;
+  }
+
+  /**
+   * Registers {@code listener} to be told about every event that is added or removed from now on.
+   */
+  public void addListener(CalendarListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("listener cannot be null");
+    }
+    listeners.add(listener);
+  }
+
+  /**
+   * Stops telling {@code listener} about changes.
+   */
+  public void removeListener(CalendarListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Returns the latest version of the calendar's busy intervals, without locking. The version
+   * doesn't change when events are added or removed later.
+   */
+  public CalendarVersion getVersion() {
+    return latest.get();
+  }
+
+  /**
+   * Returns the number of events in the calendar.
+   */
+  public int size() {
+    return latest.get().size();
+  }
+
+  /**
+   * Returns a copy of the events in the calendar, in no particular order.
+   */
+  public synchronized List<Event> getEvents() {
+    List<Event> events = new ArrayList<>(size);
+    for (Map.Entry<Event, Integer> entry : eventCounts.entrySet()) {
+      for (int i = 0; i < entry.getValue(); i++) {
+        events.add(entry.getKey());
+      }
+    }
+    return events;
+  }
+
+  // Add {@code event} to the trees and note the ids of the attendees who didn't have its interval
+  // yet
+  private void record(Event event, BitSet changedIds) {
+    eventCounts.merge(event, 1, Integer::sum);
+    size++;
+
+    TimeRange when = event.getWhen();
+
+    // An empty range can't keep anyone busy
+    if (when.duration() <= 0) {
+      return;
+    }
+
+    long interval = IntervalBuffer.pack(when.start(), when.end());
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    for (String attendee : event.getAttendees()) {
+      int id = dictionary.intern(attendee);
+      if (getOrCreateIntervals(id).merge(interval, 1, Integer::sum) == 1) {
+        changedIds.set(id);
+      }
+    }
+  }
+
+  // Publish a version in which the interval of {@code event} is added to or removed from the
+  // intervals of {@code changedIds}
+  private void publish(BitSet changedIds, Event event, boolean added) {
+    CalendarVersion previous = latest.get();
+    TimeRange when = event.getWhen();
+    long interval = IntervalBuffer.pack(when.start(), when.end());
+    latest.set(previous.next(size, changedIds, id -> {
+      AttendeeIntervals intervals = previous.getAttendeeIntervals(id);
+      if (intervals == null) {
+        intervals = AttendeeIntervals.EMPTY;
+      }
+
+      // Start again from the tree now and then, so reads never have to replay many changes
+      if (intervals.chainLength() >= AttendeeIntervals.MAX_CHAIN) {
+        return new AttendeeIntervals(toArray(intervalsById.get(id)));
+      }
+      return added ? intervals.with(interval) : intervals.without(interval);
+    }));
+  }
+
+  // Identical intervals only need to be stored once, since they merge into the same busy time
+  private static long[] toArray(TreeMap<Long, Integer> tree) {
+    long[] intervals = new long[tree.size()];
+    int i = 0;
+    for (long interval : tree.keySet()) {
+      intervals[i++] = interval;
+    }
+    return intervals;
+  }
+
+  private void notifyListeners(Event event) {
+    for (CalendarListener listener : listeners) {
+      listener.eventChanged(event);
+    }
+  }
+
+  private TreeMap<Long, Integer> getOrCreateIntervals(int id) {
+    while (intervalsById.size() <= id) {
+      intervalsById.add(null);
+    }
+
+    TreeMap<Long, Integer> intervals = intervalsById.get(id);
+    if (intervals == null) {
+      intervals = new TreeMap<>();
+      intervalsById.set(id, intervals);
+    }
+    return intervals;
+  }
+}
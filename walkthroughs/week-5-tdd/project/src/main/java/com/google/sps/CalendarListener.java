@@ -0,0 +1,27 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * Gets told about every change to a {@code Calendar}.
+ */
+public interface CalendarListener {
+  /**
+   * Called after {@code event} was added to or removed from the calendar. This is called while the
+   * calendar is locked, so it should be quick and must not wait for other threads that use the
+   * calendar.
+   */
+  void eventChanged(Event event);
+}
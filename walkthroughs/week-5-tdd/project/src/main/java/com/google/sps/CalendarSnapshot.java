@@ -0,0 +1,349 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A calendar saved as a compact binary file that is memory-mapped and queried in place. Opening a
+ * snapshot reads its header and its name table, and gives every name an id in the shared {@code
+ * AttendeeDictionary}. The events are not parsed or indexed at startup. Queries find each
+ * attendee in the name table with one array lookup by id, and their busy intervals are already
+ * sorted in the file.
+ *
+ * <p>The file holds, after a header with the magic number, the version, the counts and the
+ * position of each section:
+ *
+ * <ol>
+ *   <li>The attendee names in UTF-8, in the order they first appear in the events, as offsets into
+ *       the name bytes.
+ *   <li>The busy intervals of each attendee, in name order, packed like {@code IntervalBuffer}
+ *       intervals and sorted by start, as offsets into the interval array.
+ *   <li>The events: start and end columns, offsets into a column of attendee numbers, and offsets
+ *       into the title bytes.
+ * </ol>
+ *
+ * <p>A snapshot can't be larger than 2 GB. Snapshots are read-only and can be shared between
+ * threads.
+ */
+public final class CalendarSnapshot implements BusyIntervalSource {
+  private static final int MAGIC = 0x43414C53; // "CALS"
+  private static final int VERSION = 1;
+
+  // The sections of the file, in order. The header stores where each one begins.
+  private static final int NAME_OFFSETS = 0;
+  private static final int NAME_BYTES = 1;
+  private static final int INTERVAL_OFFSETS = 2;
+  private static final int INTERVALS = 3;
+  private static final int EVENT_STARTS = 4;
+  private static final int EVENT_ENDS = 5;
+  private static final int EVENT_ATTENDEE_OFFSETS = 6;
+  private static final int EVENT_ATTENDEES = 7;
+  private static final int TITLE_OFFSETS = 8;
+  private static final int TITLE_BYTES = 9;
+  private static final int SECTION_COUNT = 10;
+
+  // The magic number, version, event count, attendee count and section positions.
+  private static final int HEADER_BYTES = Integer.BYTES * (4 + SECTION_COUNT);
+
+  private final ByteBuffer buffer;
+  private final int eventCount;
+  private final int attendeeCount;
+  private final int[] sections = new int[SECTION_COUNT];
+
+  // The number in the name table of each attendee id, or -1 for ids that aren't in the snapshot.
+  // Ids given out after the snapshot was opened are past the end, since every name in the snapshot
+  // already had an id by then.
+  private final int[] numbersById;
+
+  private CalendarSnapshot(ByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a calendar snapshot");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported calendar snapshot version " + buffer.getInt(4));
+    }
+
+    this.buffer = buffer;
+    this.eventCount = buffer.getInt(8);
+    this.attendeeCount = buffer.getInt(12);
+    for (int i = 0; i < SECTION_COUNT; i++) {
+      sections[i] = buffer.getInt(16 + i * Integer.BYTES);
+    }
+
+    // Intern the names here, so that requests naming people who are only in the snapshot find
+    // them, and so queries don't have to look up names
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    int[] ids = new int[attendeeCount];
+    int maxId = -1;
+    for (int number = 0; number < attendeeCount; number++) {
+      ids[number] = dictionary.intern(getString(NAME_OFFSETS, NAME_BYTES, number));
+      maxId = Math.max(maxId, ids[number]);
+    }
+    this.numbersById = new int[maxId + 1];
+    Arrays.fill(numbersById, -1);
+    for (int number = 0; number < attendeeCount; number++) {
+      numbersById[ids[number]] = number;
+    }
+  }
+
+  /**
+   * Maps the snapshot in {@code file} into memory. The file must not change while it is open.
+   */
+  public static CalendarSnapshot open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Calendar snapshots can't be larger than 2 GB");
+      }
+      // The mapping stays valid after the channel is closed
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new CalendarSnapshot(mapped);
+    }
+  }
+
+  /**
+   * Writes a snapshot of {@code events} to {@code file}, replacing it if it exists.
+   */
+  public static void write(Collection<Event> events, Path file) throws IOException {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    // Number the attendees in the order they first appear. Opening the snapshot maps every number
+    // to an attendee id, so the name table needs no order of its own.
+    Map<String, byte[]> encodedNames = new LinkedHashMap<>();
+    for (Event event : events) {
+      for (String attendee : event.getAttendees()) {
+        encodedNames.computeIfAbsent(attendee, name -> name.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    List<String> names = new ArrayList<>(encodedNames.keySet());
+    Map<String, Integer> numbers = new HashMap<>();
+    for (int i = 0; i < names.size(); i++) {
+      numbers.put(names.get(i), i);
+    }
+
+    // Collect and sort the busy intervals of each attendee
+    IntervalBuffer[] intervals = new IntervalBuffer[names.size()];
+    for (int i = 0; i < intervals.length; i++) {
+      intervals[i] = new IntervalBuffer();
+    }
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+
+      // An empty range can't keep anyone busy
+      if (when.duration() <= 0) {
+        continue;
+      }
+      for (String attendee : event.getAttendees()) {
+        intervals[numbers.get(attendee)].add(when.start(), when.end());
+      }
+    }
+
+    int intervalCount = 0;
+    int nameByteCount = 0;
+    for (int i = 0; i < names.size(); i++) {
+      intervals[i].sort();
+      intervalCount += intervals[i].size();
+      nameByteCount += encodedNames.get(names.get(i)).length;
+    }
+
+    int eventAttendeeCount = 0;
+    List<byte[]> titles = new ArrayList<>(events.size());
+    int titleByteCount = 0;
+    for (Event event : events) {
+      eventAttendeeCount += event.getAttendees().size();
+      byte[] title = event.getTitle().getBytes(StandardCharsets.UTF_8);
+      titles.add(title);
+      titleByteCount += title.length;
+    }
+
+    // Every section's size is known now, so its position can go in the header
+    long[] sizes = new long[SECTION_COUNT];
+    sizes[NAME_OFFSETS] = (long) Integer.BYTES * (names.size() + 1);
+    sizes[NAME_BYTES] = nameByteCount;
+    sizes[INTERVAL_OFFSETS] = (long) Integer.BYTES * (names.size() + 1);
+    sizes[INTERVALS] = (long) Long.BYTES * intervalCount;
+    sizes[EVENT_STARTS] = (long) Integer.BYTES * events.size();
+    sizes[EVENT_ENDS] = (long) Integer.BYTES * events.size();
+    sizes[EVENT_ATTENDEE_OFFSETS] = (long) Integer.BYTES * (events.size() + 1);
+    sizes[EVENT_ATTENDEES] = (long) Integer.BYTES * eventAttendeeCount;
+    sizes[TITLE_OFFSETS] = (long) Integer.BYTES * (events.size() + 1);
+    sizes[TITLE_BYTES] = titleByteCount;
+
+    long position = HEADER_BYTES;
+    int[] positions = new int[SECTION_COUNT];
+    for (int i = 0; i < SECTION_COUNT; i++) {
+      if (position + sizes[i] > Integer.MAX_VALUE) {
+        throw new IOException("Calendar snapshots can't be larger than 2 GB");
+      }
+      positions[i] = (int) position;
+      position += sizes[i];
+    }
+
+    // DataOutputStream writes big-endian values, the default order of a ByteBuffer
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(events.size());
+      out.writeInt(names.size());
+      for (int sectionPosition : positions) {
+        out.writeInt(sectionPosition);
+      }
+
+      int offset = 0;
+      for (String name : names) {
+        out.writeInt(offset);
+        offset += encodedNames.get(name).length;
+      }
+      out.writeInt(offset);
+      for (String name : names) {
+        out.write(encodedNames.get(name));
+      }
+
+      offset = 0;
+      for (IntervalBuffer attendeeIntervals : intervals) {
+        out.writeInt(offset);
+        offset += attendeeIntervals.size();
+      }
+      out.writeInt(offset);
+      for (IntervalBuffer attendeeIntervals : intervals) {
+        for (int i = 0; i < attendeeIntervals.size(); i++) {
+          out.writeLong(attendeeIntervals.get(i));
+        }
+      }
+
+      for (Event event : events) {
+        out.writeInt(event.getWhen().start());
+      }
+      for (Event event : events) {
+        out.writeInt(event.getWhen().end());
+      }
+      offset = 0;
+      for (Event event : events) {
+        out.writeInt(offset);
+        offset += event.getAttendees().size();
+      }
+      out.writeInt(offset);
+      for (Event event : events) {
+        for (String attendee : event.getAttendees()) {
+          out.writeInt(numbers.get(attendee));
+        }
+      }
+
+      offset = 0;
+      for (byte[] title : titles) {
+        out.writeInt(offset);
+        offset += title.length;
+      }
+      out.writeInt(offset);
+      for (byte[] title : titles) {
+        out.write(title);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of events in the snapshot.
+   */
+  public int size() {
+    return eventCount;
+  }
+
+  /**
+   * Returns the number of different attendees in the snapshot.
+   */
+  public int attendeeCount() {
+    return attendeeCount;
+  }
+
+  /**
+   * Reads event {@code row} from the snapshot as an {@code Event}.
+   */
+  public Event getEvent(int row) {
+    int start = getInt(EVENT_STARTS, row);
+    int end = getInt(EVENT_ENDS, row);
+
+    List<String> attendees = new ArrayList<>();
+    int to = getInt(EVENT_ATTENDEE_OFFSETS, row + 1);
+    for (int i = getInt(EVENT_ATTENDEE_OFFSETS, row); i < to; i++) {
+      attendees.add(getString(NAME_OFFSETS, NAME_BYTES, getInt(EVENT_ATTENDEES, i)));
+    }
+
+    String title = getString(TITLE_OFFSETS, TITLE_BYTES, row);
+    return new Event(title, TimeRange.fromStartEnd(start, end, false), attendees);
+  }
+
+  @Override
+  public void addIntervals(int id, IntervalBuffer intervals) {
+    if (id < 0 || id >= numbersById.length) {
+      return;
+    }
+    int number = numbersById[id];
+    if (number < 0) {
+      return;
+    }
+
+    int to = getInt(INTERVAL_OFFSETS, number + 1);
+    int base = sections[INTERVALS];
+    for (int i = getInt(INTERVAL_OFFSETS, number); i < to; i++) {
+      intervals.addPacked(buffer.getLong(base + i * Long.BYTES));
+    }
+  }
+
+  private int getInt(int section, int index) {
+    return buffer.getInt(sections[section] + index * Integer.BYTES);
+  }
+
+  // Decode string {@code index} of a table made of an offsets section and a bytes section
+  private String getString(int offsetsSection, int bytesSection, int index) {
+    int from = getInt(offsetsSection, index);
+    byte[] encoded = new byte[getInt(offsetsSection, index + 1) - from];
+    for (int i = 0; i < encoded.length; i++) {
+      encoded[i] = buffer.get(sections[bytesSection] + from + i);
+    }
+    return new String(encoded, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the sample events in {@code Events} to the file named by the first argument, e.g.
+   * {@code src/main/webapp/WEB-INF/calendar.snapshot}.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: CalendarSnapshot <output file>");
+      System.exit(1);
+    }
+    write(Arrays.asList(Events.events), Paths.get(args[0]));
+  }
+}
@@ -0,0 +1,147 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * The busy intervals of a {@code Calendar} as they were at one point in time. A version never
+ * changes after it is published, so any number of threads can query it without locking while the
+ * calendar moves on to newer versions.
+ *
+ * <p>The intervals are kept in a persistent trie keyed by attendee id, with {@code WIDTH} children
+ * per node. The next version copies only the nodes on the paths to the attendees that changed, so
+ * publishing a change costs O(log n) in the number of attendees and consecutive versions share
+ * everything else.
+ */
+public final class CalendarVersion implements BusyIntervalSource {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  static final CalendarVersion EMPTY = new CalendarVersion(0, new Object[WIDTH], 0, 0);
+
+  private final long number;
+
+  // The root of the trie. Inner nodes hold {@code Object[]} children, and the nodes at the bottom
+  // hold the {@code AttendeeIntervals} of each attendee id in the shared {@code AttendeeDictionary},
+  // or null for attendees without events.
+  private final Object[] root;
+
+  // How far to shift an id to get its index in the root. Zero when the root is a bottom node.
+  private final int shift;
+
+  private final int size;
+
+  private CalendarVersion(long number, Object[] root, int shift, int size) {
+    this.number = number;
+    this.root = root;
+    this.shift = shift;
+    this.size = size;
+  }
+
+  /**
+   * Returns the number of this version. Every change to the calendar publishes a version with a
+   * higher number.
+   */
+  public long getNumber() {
+    return number;
+  }
+
+  /**
+   * Returns the number of events in the calendar at this version.
+   */
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void addIntervals(int id, IntervalBuffer buffer) {
+    AttendeeIntervals intervals = getAttendeeIntervals(id);
+    if (intervals != null) {
+      buffer.addAll(intervals.get());
+    }
+  }
+
+  /**
+   * Returns the intervals of the attendee with the id {@code id}, or null if they have no events.
+   */
+  AttendeeIntervals getAttendeeIntervals(int id) {
+    if (id < 0 || (id >>> shift) >= WIDTH) {
+      return null;
+    }
+
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(id >>> level) & MASK];
+      if (node == null) {
+        return null;
+      }
+    }
+    return (AttendeeIntervals) node[id & MASK];
+  }
+
+  /**
+   * Returns the version after this one, in which the calendar holds {@code size} events and every
+   * attendee in {@code changedIds} has the intervals given by {@code intervalsById}. Only the trie
+   * nodes on the paths to the changed ids are copied, and none at all if no id changed.
+   */
+  CalendarVersion next(
+      int size, BitSet changedIds, IntFunction<AttendeeIntervals> intervalsById) {
+    // Events that only repeat or drop a duplicate interval just change the count
+    if (changedIds.isEmpty()) {
+      return size == this.size ? this : new CalendarVersion(number + 1, root, shift, size);
+    }
+
+    // The nodes made for this version, which can be changed in place until it is published
+    Set<Object[]> fresh = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Add levels on top of the root until it reaches the largest changed id
+    Object[] nextRoot = root.clone();
+    fresh.add(nextRoot);
+    int nextShift = shift;
+    int maxId = changedIds.length() - 1;
+    while ((maxId >>> nextShift) >= WIDTH) {
+      Object[] grown = new Object[WIDTH];
+      grown[0] = nextRoot;
+      fresh.add(grown);
+      nextRoot = grown;
+      nextShift += BITS;
+    }
+
+    for (int id = changedIds.nextSetBit(0); id >= 0; id = changedIds.nextSetBit(id + 1)) {
+      Object[] node = nextRoot;
+      for (int level = nextShift; level > 0; level -= BITS) {
+        int index = (id >>> level) & MASK;
+        Object[] child = (Object[]) node[index];
+        if (child == null) {
+          child = new Object[WIDTH];
+          fresh.add(child);
+        } else if (!fresh.contains(child)) {
+          child = child.clone();
+          fresh.add(child);
+        }
+        node[index] = child;
+        node = child;
+      }
+      node[id & MASK] = intervalsById.apply(id);
+    }
+    return new CalendarVersion(number + 1, nextRoot, nextShift, size);
+  }
+}
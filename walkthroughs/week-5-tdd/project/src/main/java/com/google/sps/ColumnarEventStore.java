@@ -0,0 +1,313 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Events stored column by column in direct (off-heap) buffers instead of as {@code Event} objects.
+ * Each event is a row number, and its start, end, title and attendees are read from the columns.
+ * A million events take a few tens of megabytes outside the Java heap, so they add nothing to
+ * garbage collection pauses.
+ *
+ * <ul>
+ *   <li>{@code starts}, {@code ends}: the time range of each event in minutes.
+ *   <li>{@code titleIds}: the title of each event as an index into the title dictionary. Each
+ *       distinct title is stored once, as UTF-8 bytes.
+ *   <li>{@code attendeeOffsets}: where each event's attendees begin in {@code attendeeIds}. The
+ *       attendees of event {@code i} run up to the offset of event {@code i + 1}.
+ *   <li>{@code attendeeIds}: the ids of the attendees in the shared {@code AttendeeDictionary}.
+ * </ul>
+ *
+ * <p>Stores are built with a {@code Builder} and are read-only afterwards, so they can be shared
+ * between threads.
+ */
+public final class ColumnarEventStore {
+  private final int size;
+  private final IntBuffer starts;
+  private final IntBuffer ends;
+  private final IntBuffer titleIds;
+  private final IntBuffer attendeeOffsets;
+  private final IntBuffer attendeeIds;
+
+  // The title dictionary: the UTF-8 bytes of every distinct title, back to back, and where each
+  // one begins. Title {@code t} runs up to the offset of title {@code t + 1}.
+  private final ByteBuffer titleBytes;
+  private final IntBuffer titleOffsets;
+
+  private final long offHeapBytes;
+
+  private ColumnarEventStore(Builder builder) {
+    size = builder.size;
+    starts = builder.starts.toBuffer();
+    ends = builder.ends.toBuffer();
+    titleIds = builder.titleIds.toBuffer();
+    attendeeOffsets = builder.attendeeOffsets.toBuffer();
+    attendeeIds = builder.attendeeIds.toBuffer();
+
+    // Lay the titles out back to back now that all of them are known
+    byte[][] encodedTitles = new byte[builder.titles.size()][];
+    int totalLength = 0;
+    for (int i = 0; i < encodedTitles.length; i++) {
+      encodedTitles[i] = builder.titles.get(i).getBytes(StandardCharsets.UTF_8);
+      totalLength += encodedTitles[i].length;
+    }
+    titleBytes = ByteBuffer.allocateDirect(totalLength);
+    IntColumn offsets = new IntColumn(encodedTitles.length + 1);
+    for (byte[] encodedTitle : encodedTitles) {
+      offsets.add(titleBytes.position());
+      titleBytes.put(encodedTitle);
+    }
+    offsets.add(titleBytes.position());
+    titleOffsets = offsets.toBuffer();
+
+    offHeapBytes = (long) Integer.BYTES * (starts.capacity() + ends.capacity() + titleIds.capacity()
+        + attendeeOffsets.capacity() + attendeeIds.capacity() + titleOffsets.capacity())
+        + titleBytes.capacity();
+  }
+
+  /**
+   * Creates a store holding a copy of {@code events}, in the same order.
+   *
+   * @param events The events to store. Must be non-null.
+   */
+  public static ColumnarEventStore of(Collection<Event> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    Builder builder = new Builder();
+    for (Event event : events) {
+      builder.add(event);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the number of events in the store.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the start of event {@code row} in minutes.
+   */
+  public int getStart(int row) {
+    return starts.get(row);
+  }
+
+  /**
+   * Returns the exclusive end of event {@code row} in minutes.
+   */
+  public int getEnd(int row) {
+    return ends.get(row);
+  }
+
+  /**
+   * Returns the title of event {@code row}. The title is decoded from the dictionary on every call.
+   */
+  public String getTitle(int row) {
+    int titleId = titleIds.get(row);
+    int from = titleOffsets.get(titleId);
+    int to = titleOffsets.get(titleId + 1);
+    byte[] encoded = new byte[to - from];
+    for (int i = 0; i < encoded.length; i++) {
+      encoded[i] = titleBytes.get(from + i);
+    }
+    return new String(encoded, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the number of distinct titles in the title dictionary.
+   */
+  public int getTitleCount() {
+    return titleOffsets.capacity() - 1;
+  }
+
+  /**
+   * Returns the number of attendees of event {@code row}.
+   */
+  public int getAttendeeCount(int row) {
+    return attendeeOffsets.get(row + 1) - attendeeOffsets.get(row);
+  }
+
+  /**
+   * Returns the id in the shared {@code AttendeeDictionary} of attendee {@code index} of event
+   * {@code row}.
+   */
+  public int getAttendeeId(int row, int index) {
+    return attendeeIds.get(attendeeOffsets.get(row) + index);
+  }
+
+  /**
+   * Checks if event {@code row} has an attendee whose id is set in {@code ids}.
+   */
+  boolean hasAttendeeIn(int row, BitSet ids) {
+    int to = attendeeOffsets.get(row + 1);
+    for (int i = attendeeOffsets.get(row); i < to; i++) {
+      if (ids.get(attendeeIds.get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Creates an {@code Event} for row {@code row}. This is only meant for the few events that are
+   * shown to a user. Queries read the columns directly.
+   */
+  public Event getEvent(int row) {
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    List<String> attendees = new ArrayList<>(getAttendeeCount(row));
+    for (int i = 0; i < getAttendeeCount(row); i++) {
+      attendees.add(dictionary.getName(getAttendeeId(row, i)));
+    }
+    return new Event(getTitle(row),
+        TimeRange.fromStartEnd(getStart(row), getEnd(row), false), attendees);
+  }
+
+  /**
+   * Returns the number of bytes the columns take up outside the Java heap.
+   */
+  public long getOffHeapBytes() {
+    return offHeapBytes;
+  }
+
+  /**
+   * Adds events to a new store one at a time. Builders are not thread-safe.
+   */
+  public static final class Builder {
+    private final IntColumn starts = new IntColumn(1024);
+    private final IntColumn ends = new IntColumn(1024);
+    private final IntColumn titleIds = new IntColumn(1024);
+    private final IntColumn attendeeOffsets = new IntColumn(1024);
+    private final IntColumn attendeeIds = new IntColumn(1024);
+
+    // The distinct titles so far, and the id of each. Only the builder keeps titles on the heap.
+    private final List<String> titles = new ArrayList<>();
+    private final Map<String, Integer> titleIdsByTitle = new HashMap<>();
+
+    private int size;
+    private boolean built;
+
+    public Builder() {
+      attendeeOffsets.add(0);
+    }
+
+    /**
+     * Adds an event that runs from {@code start} (inclusive) to {@code end} (exclusive).
+     */
+    public Builder add(String title, int start, int end, Collection<String> attendees) {
+      if (built) {
+        throw new IllegalStateException("build() was already called");
+      }
+
+      if (title == null) {
+        throw new IllegalArgumentException("title cannot be null");
+      }
+
+      if (attendees == null) {
+        throw new IllegalArgumentException("attendees cannot be null. Use empty array instead.");
+      }
+
+      Integer titleId = titleIdsByTitle.get(title);
+      if (titleId == null) {
+        titleId = titles.size();
+        titles.add(title);
+        titleIdsByTitle.put(title, titleId);
+      }
+
+      AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+      starts.add(start);
+      ends.add(end);
+      titleIds.add(titleId);
+      for (String attendee : attendees) {
+        attendeeIds.add(dictionary.intern(attendee));
+      }
+      attendeeOffsets.add(attendeeIds.size());
+      size++;
+      return this;
+    }
+
+    /**
+     * Adds a copy of {@code event}.
+     */
+    public Builder add(Event event) {
+      TimeRange when = event.getWhen();
+      return add(event.getTitle(), when.start(), when.end(), event.getAttendees());
+    }
+
+    /**
+     * Returns a store with every event added so far. The builder can't be used afterwards.
+     */
+    public ColumnarEventStore build() {
+      if (built) {
+        throw new IllegalStateException("build() was already called");
+      }
+      built = true;
+      return new ColumnarEventStore(this);
+    }
+  }
+
+  /**
+   * A growable column of {@code int}s in a direct buffer.
+   */
+  private static final class IntColumn {
+    private IntBuffer values;
+
+    IntColumn(int capacity) {
+      values = allocate(capacity);
+    }
+
+    void add(int value) {
+      if (!values.hasRemaining()) {
+        IntBuffer grown = allocate(Math.max(1, values.capacity() * 2));
+        values.flip();
+        grown.put(values);
+        values = grown;
+      }
+      values.put(value);
+    }
+
+    int size() {
+      return values.position();
+    }
+
+    // Copy the values into a buffer of exactly the right size, so the spare capacity is freed
+    IntBuffer toBuffer() {
+      IntBuffer exact = allocate(values.position());
+      values.flip();
+      exact.put(values);
+      exact.flip();
+      return exact;
+    }
+
+    private static IntBuffer allocate(int capacity) {
+      return ByteBuffer.allocateDirect(capacity * Integer.BYTES)
+          .order(ByteOrder.nativeOrder())
+          .asIntBuffer();
+    }
+  }
+}
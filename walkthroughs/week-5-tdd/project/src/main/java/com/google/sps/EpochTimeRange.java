@@ -0,0 +1,171 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+
+/**
+ * A span of time that isn't limited to a single day. Unlike {@code TimeRange}, the start is
+ * counted in minutes since the epoch (1970-01-01T00:00Z), so ranges can cover many days and can be
+ * compared no matter which time zone they were created in. Ranges are read-only.
+ */
+public final class EpochTimeRange {
+  private static final long SECONDS_PER_MINUTE = 60;
+
+  /**
+   * A comparator for sorting ranges by their start time in ascending order.
+   */
+  public static final Comparator<EpochTimeRange> ORDER_BY_START = new Comparator<EpochTimeRange>() {
+    @Override
+    public int compare(EpochTimeRange a, EpochTimeRange b) {
+      return Long.compare(a.start, b.start);
+    }
+  };
+
+  private final long start;
+  private final long duration;
+
+  private EpochTimeRange(long start, long duration) {
+    this.start = start;
+    this.duration = duration;
+  }
+
+  /**
+   * Returns the start of the range in minutes since the epoch.
+   */
+  public long start() {
+    return start;
+  }
+
+  /**
+   * Returns the number of minutes between the start and end.
+   */
+  public long duration() {
+    return duration;
+  }
+
+  /**
+   * Returns the end of the range in minutes since the epoch. This ending value is the closing
+   * exclusive bound.
+   */
+  public long end() {
+    return start + duration;
+  }
+
+  /**
+   * Checks if two ranges overlap. Empty ranges don't overlap anything.
+   */
+  public boolean overlaps(EpochTimeRange other) {
+    return duration > 0 && other.duration > 0 && start < other.end() && other.start < end();
+  }
+
+  /**
+   * Checks if {@code point}, in minutes since the epoch, falls within this range.
+   */
+  public boolean contains(long point) {
+    return duration > 0 && point >= start && point < end();
+  }
+
+  /**
+   * Returns the start of the range as seen in {@code zone}.
+   */
+  public ZonedDateTime startIn(ZoneId zone) {
+    return toZonedDateTime(start, zone);
+  }
+
+  /**
+   * Returns the exclusive end of the range as seen in {@code zone}.
+   */
+  public ZonedDateTime endIn(ZoneId zone) {
+    return toZonedDateTime(end(), zone);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof EpochTimeRange)) {
+      return false;
+    }
+    EpochTimeRange range = (EpochTimeRange) other;
+    return start == range.start && duration == range.duration;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(start) ^ Long.hashCode(duration);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Range: [%d, %d)", start, end());
+  }
+
+  /**
+   * Creates a range from {@code start} (inclusive) to {@code end} (exclusive), both in minutes
+   * since the epoch.
+   */
+  public static EpochTimeRange fromStartEnd(long start, long end) {
+    return new EpochTimeRange(start, end - start);
+  }
+
+  /**
+   * Creates a range starting at {@code start} minutes since the epoch that lasts {@code duration}
+   * minutes.
+   */
+  public static EpochTimeRange fromStartDuration(long start, long duration) {
+    return new EpochTimeRange(start, duration);
+  }
+
+  /**
+   * Creates a range from {@code start} to {@code end}. The two may be in different time zones.
+   * Seconds are dropped.
+   */
+  public static EpochTimeRange fromStartEnd(ZonedDateTime start, ZonedDateTime end) {
+    return fromStartEnd(toEpochMinute(start.toInstant()), toEpochMinute(end.toInstant()));
+  }
+
+  /**
+   * Returns the whole of {@code date} in {@code zone}, from midnight to the next midnight. Days
+   * where the clocks change are shorter or longer than 24 hours.
+   */
+  public static EpochTimeRange ofDay(LocalDate date, ZoneId zone) {
+    return fromStartEnd(date.atStartOfDay(zone), date.plusDays(1).atStartOfDay(zone));
+  }
+
+  /**
+   * Converts a single-day {@code range} on {@code date} into an epoch range. The minutes of
+   * {@code range} are read as wall clock times in {@code zone}, so 9:00 stays 9:00 on days where
+   * the clocks change.
+   */
+  public static EpochTimeRange ofTimeRange(LocalDate date, ZoneId zone, TimeRange range) {
+    return fromStartEnd(
+        date.atStartOfDay().plusMinutes(range.start()).atZone(zone),
+        date.atStartOfDay().plusMinutes(range.end()).atZone(zone));
+  }
+
+  /**
+   * Returns the number of whole minutes between the epoch and {@code instant}.
+   */
+  public static long toEpochMinute(Instant instant) {
+    return Math.floorDiv(instant.getEpochSecond(), SECONDS_PER_MINUTE);
+  }
+
+  private static ZonedDateTime toZonedDateTime(long epochMinute, ZoneId zone) {
+    return Instant.ofEpochSecond(epochMinute * SECONDS_PER_MINUTE).atZone(zone);
+  }
+}
@@ -28,6 +28,12 @@ public final class Event {
   private final TimeRange when;
   private final Set<String> attendees = new HashSet<>();
 
+  // Read-only view of {@code attendees}, created once instead of on every call to getAttendees().
+  private final transient Set<String> attendeesView = Collections.unmodifiableSet(attendees);
+
+  // The interned ids of {@code attendees}, used to check for shared attendees without hashing.
+  private final transient SparseBitSet attendeeIds;
+
   /**
    * Creates a new event.
    *
@@ -51,6 +57,8 @@ public final class Event {
     this.title = title;
     this.when = when;
     this.attendees.addAll(attendees);
+    this.attendeeIds =
+        new SparseBitSet(AttendeeDictionary.getInstance().internAll(this.attendees));
   }
 
   /**
@@ -73,7 +81,15 @@ public final class Event {
   public Set<String> getAttendees() {
     // Return the attendees as an unmodifiable set so that the caller can't change our
     // internal data.
-    return Collections.unmodifiableSet(attendees);
+    return attendeesView;
+  }
+
+  /**
+   * Checks if at least one attendee of this event has an id in {@code ids}. The ids come from the
+   * shared {@code AttendeeDictionary} and use the layout of {@code BitSet.toLongArray()}.
+   */
+  boolean sharesAttendee(long[] ids) {
+    return attendeeIds.intersects(ids);
   }
 
   @Override
@@ -0,0 +1,159 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An index from each attendee to the time ranges of the events they attend. The index is built once
+ * from a collection of events, so a query only has to look at the events of the people it names
+ * instead of scanning every event. Indexes are read-only and can be shared between threads.
+ */
+public final class EventIndex implements BusyIntervalSource {
+  private static final long[] NO_INTERVALS = new long[0];
+  private static final int[] NO_ENDS = new int[0];
+
+  // The packed busy intervals of each attendee, sorted by start and indexed by the attendee's id in
+  // the shared {@code AttendeeDictionary}. Intervals are not merged because the duration of each
+  // event is still needed to decide if an optional attendee's event counts.
+  private final long[][] intervalsById;
+
+  // The largest end among each attendee's first i + 1 intervals. Unlike the ends themselves, these
+  // never decrease, so the first interval that reaches past a time can be found with a binary
+  // search.
+  private final int[][] maxEndsById;
+
+  // The number of attendees that have at least one event.
+  private final int attendeeCount;
+
+  /**
+   * Creates an index of {@code events}.
+   *
+   * @param events The events to index. Must be non-null.
+   */
+  public EventIndex(Collection<Event> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    List<IntervalBuffer> buffers = new ArrayList<>();
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+
+      // An empty range can't keep anyone busy
+      if (when.duration() <= 0) {
+        continue;
+      }
+
+      for (String attendee : event.getAttendees()) {
+        int id = dictionary.intern(attendee);
+        while (buffers.size() <= id) {
+          buffers.add(null);
+        }
+        IntervalBuffer buffer = buffers.get(id);
+        if (buffer == null) {
+          buffer = new IntervalBuffer();
+          buffers.set(id, buffer);
+        }
+        buffer.add(when.start(), when.end());
+      }
+    }
+
+    int count = 0;
+    intervalsById = new long[buffers.size()][];
+    maxEndsById = new int[buffers.size()][];
+    for (int id = 0; id < buffers.size(); id++) {
+      IntervalBuffer buffer = buffers.get(id);
+      if (buffer == null) {
+        intervalsById[id] = NO_INTERVALS;
+        maxEndsById[id] = NO_ENDS;
+      } else {
+        buffer.sort();
+        intervalsById[id] = buffer.toArray();
+        maxEndsById[id] = getMaxEnds(intervalsById[id]);
+        count++;
+      }
+    }
+    attendeeCount = count;
+  }
+
+  /**
+   * Returns the number of attendees that have at least one event.
+   */
+  public int attendeeCount() {
+    return attendeeCount;
+  }
+
+  @Override
+  public void addIntervals(int id, IntervalBuffer buffer) {
+    buffer.addAll(getIntervals(id));
+  }
+
+  /**
+   * Returns the packed busy intervals of {@code attendee}, sorted by start. The returned array is
+   * shared and must not be modified.
+   */
+  long[] getIntervals(String attendee) {
+    return getIntervals(AttendeeDictionary.getInstance().getId(attendee));
+  }
+
+  /**
+   * Returns the packed busy intervals of the attendee with the id {@code id}, sorted by start. The
+   * returned array is shared and must not be modified.
+   */
+  long[] getIntervals(int id) {
+    if (id < 0 || id >= intervalsById.length) {
+      return NO_INTERVALS;
+    }
+    return intervalsById[id];
+  }
+
+  /**
+   * Returns the position of the first interval of the attendee with the id {@code id} that ends
+   * after {@code time}. Every earlier interval is over by {@code time}, so a search for free time
+   * from {@code time} on can start here.
+   */
+  int firstEndingAfter(int id, int time) {
+    if (id < 0 || id >= maxEndsById.length) {
+      return 0;
+    }
+
+    int[] maxEnds = maxEndsById[id];
+    int low = 0;
+    int high = maxEnds.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (maxEnds[middle] <= time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static int[] getMaxEnds(long[] intervals) {
+    int[] maxEnds = new int[intervals.length];
+    int maxEnd = Integer.MIN_VALUE;
+    for (int i = 0; i < intervals.length; i++) {
+      maxEnd = Math.max(maxEnd, IntervalBuffer.end(intervals[i]));
+      maxEnds[i] = maxEnd;
+    }
+    return maxEnds;
+  }
+}
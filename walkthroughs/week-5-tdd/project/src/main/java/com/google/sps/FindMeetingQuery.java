@@ -14,152 +14,919 @@
 
 package com.google.sps;
 
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
 
 public final class FindMeetingQuery {
+  /**
+   * Requests with at least this many attendees (mandatory and optional) merge their busy intervals
+   * in parallel unless a different threshold is given to the constructor.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
+
+  // The number of attendees whose busy intervals one fork-join task merges without splitting.
+  private static final int PARALLEL_LEAF_ATTENDEES = 256;
+
+  // Scratch buffer for the busy intervals of a query. It is reused by every query on the same
+  // thread, so a query only allocates the {@code TimeRange} objects it returns.
+  private static final ThreadLocal<IntervalBuffer> BUSY_INTERVALS =
+      ThreadLocal.withInitial(IntervalBuffer::new);
+
+  // Scratch bitmap for the busy minutes of a query that uses a {@code BitmapIndex}.
+  private static final ThreadLocal<long[]> BUSY_MINUTES =
+      ThreadLocal.withInitial(() -> new long[BitmapIndex.WORDS_PER_DAY]);
+
+  // Orders ranked ranges by the number of available optional attendees, most first, then by start.
+  private static final Comparator<RankedTimeRange> ORDER_BY_RANK =
+      Comparator.comparingInt(RankedTimeRange::getAvailableOptionalAttendees).reversed()
+          .thenComparing(RankedTimeRange::getRange, TimeRange.ORDER_BY_START);
+
+  // Room ranges are sorted as longs with the start, the room's position and the end packed into
+  // them, so that the sort doesn't compare objects. Times fit in 11 bits and positions in 31.
+  private static final int ROOM_KEY_END_BITS = 12;
+  private static final int ROOM_KEY_START_SHIFT = ROOM_KEY_END_BITS + 31;
+
+  // Scratch buffer for the free ranges of one room.
+  private static final ThreadLocal<IntervalBuffer> ROOM_FREE_INTERVALS =
+      ThreadLocal.withInitial(IntervalBuffer::new);
+
+  private final int parallelThreshold;
+
+  public FindMeetingQuery() {
+    this(DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Creates a query that merges the busy intervals of requests with at least
+   * {@code parallelThreshold} attendees in parallel on the common {@code ForkJoinPool}. Only
+   * queries that use an {@code EventIndex} run in parallel.
+   */
+  public FindMeetingQuery(int parallelThreshold) {
+    if (parallelThreshold < 1) {
+      throw new IllegalArgumentException("parallelThreshold must be at least 1");
+    }
+    this.parallelThreshold = parallelThreshold;
+  }
+
   public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
-    // Initalize the processed result and the not acceptable ranges
+    // Check when the meeting is greater than the whole day and return an empty result
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return new ArrayList<>();
+    }
+
+    // Collect the intervals where at least one of the requested attendees is busy
+    IntervalBuffer busyIntervals = BUSY_INTERVALS.get();
+    busyIntervals.clear();
+    addBusyIntervals(events, request, busyIntervals);
+
+    return getFreeRanges(busyIntervals, request.getDuration());
+  }
+
+  /**
+   * Same as {@code query(Collection<Event>, MeetingRequest)}, but only looks at the events of the
+   * people in {@code request} by using a prebuilt {@code EventIndex}.
+   */
+  public Collection<TimeRange> query(EventIndex index, MeetingRequest request) {
+    return query((BusyIntervalSource) index, request);
+  }
+
+  /**
+   * Same as {@code query(Collection<Event>, MeetingRequest)}, but answers from the latest version of
+   * the busy intervals that {@code calendar} keeps up to date as events are added and removed. The
+   * whole query sees that one version, even while other threads change the calendar.
+   */
+  public Collection<TimeRange> query(Calendar calendar, MeetingRequest request) {
+    return query(calendar.getVersion(), request);
+  }
+
+  /**
+   * Same as {@code query(Collection<Event>, MeetingRequest)}, but answers from one published
+   * {@code version} of a calendar without locking.
+   */
+  public Collection<TimeRange> query(CalendarVersion version, MeetingRequest request) {
+    return query((BusyIntervalSource) version, request);
+  }
+
+  /**
+   * Same as {@code query(Collection<Event>, MeetingRequest)}, but reads the sorted busy intervals
+   * of the people in {@code request} straight from the mapped {@code snapshot} file.
+   */
+  public Collection<TimeRange> query(CalendarSnapshot snapshot, MeetingRequest request) {
+    return query((BusyIntervalSource) snapshot, request);
+  }
+
+  /**
+   * Same as {@code query(Collection<Event>, MeetingRequest)}, but ORs together the minute bitmaps
+   * of the requested attendees in {@code index} and then scans the result for runs of free minutes.
+   * The cost depends on the number of attendees, not on how many events they have.
+   */
+  public Collection<TimeRange> query(BitmapIndex index, MeetingRequest request) {
+    long meetingDuration = request.getDuration();
     List<TimeRange> availableRanges = new ArrayList<>();
-    List<TimeRange> unacceptableRanges = new ArrayList<>();
 
-    // Get meeting duration
+    // Check when the meeting is greater than the whole day and return an empty result
+    if (meetingDuration > TimeRange.WHOLE_DAY.duration()) {
+      return availableRanges;
+    }
+
+    long[] busyMinutes = BUSY_MINUTES.get();
+    Arrays.fill(busyMinutes, 0);
+    BitSet attendeeIds = request.getAttendeeIds();
+    for (int id = attendeeIds.nextSetBit(0); id >= 0; id = attendeeIds.nextSetBit(id + 1)) {
+      index.orBusyMinutes(id, busyMinutes);
+    }
+    BitSet optionalAttendeeIds = request.getOptionalAttendeeIds();
+    for (int id = optionalAttendeeIds.nextSetBit(0); id >= 0;
+        id = optionalAttendeeIds.nextSetBit(id + 1)) {
+      index.orOptionalBusyMinutes(id, meetingDuration, busyMinutes);
+    }
+
+    // Jump from each free minute to the next busy one, skipping whole words of either at a time
+    int endOfDay = TimeRange.WHOLE_DAY.end();
+    int freeStart = BitmapIndex.nextFreeMinute(busyMinutes, TimeRange.START_OF_DAY, endOfDay);
+    while (freeStart < endOfDay) {
+      int freeEnd = BitmapIndex.nextBusyMinute(busyMinutes, freeStart, endOfDay);
+      addIfLongEnough(availableRanges, freeStart, freeEnd, meetingDuration);
+      freeStart = BitmapIndex.nextFreeMinute(busyMinutes, freeEnd, endOfDay);
+    }
+    return availableRanges;
+  }
+
+  /**
+   * Same as {@code query(Collection<Event>, MeetingRequest)}, but reads the events straight from
+   * the columns of {@code store} without creating {@code Event} objects.
+   */
+  public Collection<TimeRange> query(ColumnarEventStore store, MeetingRequest request) {
     long meetingDuration = request.getDuration();
-    
+
     // Check when the meeting is greater than the whole day and return an empty result
-    if ((int)meetingDuration > TimeRange.WHOLE_DAY.duration()) {
+    if (meetingDuration > TimeRange.WHOLE_DAY.duration()) {
+      return new ArrayList<>();
+    }
+
+    BitSet attendeeIds = request.getAttendeeIds();
+    BitSet optionalAttendeeIds = request.getOptionalAttendeeIds();
+    IntervalBuffer busyIntervals = BUSY_INTERVALS.get();
+    busyIntervals.clear();
+    for (int row = 0; row < store.size(); row++) {
+      int start = store.getStart(row);
+      int end = store.getEnd(row);
+
+      // An empty range can't keep anyone busy
+      if (end <= start) {
+        continue;
+      }
+
+      if (store.hasAttendeeIn(row, attendeeIds)
+          || (!isUnreasonableOptionalRange(start, end, meetingDuration)
+              && store.hasAttendeeIn(row, optionalAttendeeIds))) {
+        busyIntervals.add(start, end);
+      }
+    }
+
+    return getFreeRanges(busyIntervals, meetingDuration);
+  }
+
+  // Answer the request from the busy intervals of the requested attendees only
+  private Collection<TimeRange> query(BusyIntervalSource source, MeetingRequest request) {
+    long meetingDuration = request.getDuration();
+
+    // Check when the meeting is greater than the whole day and return an empty result
+    if (meetingDuration > TimeRange.WHOLE_DAY.duration()) {
+      return new ArrayList<>();
+    }
+
+    BitSet attendeeIds = request.getAttendeeIds();
+    BitSet optionalAttendeeIds = request.getOptionalAttendeeIds();
+
+    // For very large meetings, split the attendees across the fork-join pool. Each task merges the
+    // busy intervals of its attendees and the partial results are merged back together.
+    int attendeeCount = attendeeIds.cardinality() + optionalAttendeeIds.cardinality();
+    if (attendeeCount >= parallelThreshold) {
+      int[] ids = new int[attendeeCount];
+      int optionalFrom = copyIds(attendeeIds, ids, 0);
+      copyIds(optionalAttendeeIds, ids, optionalFrom);
+
+      IntervalBuffer busyIntervals = ForkJoinPool.commonPool().invoke(
+          new MergeBusyIntervalsTask(source, ids, optionalFrom, meetingDuration, 0, ids.length));
+      List<TimeRange> availableRanges = new ArrayList<>();
+      addFreeRanges(busyIntervals, meetingDuration, availableRanges);
       return availableRanges;
     }
 
-    // Check if theres no events the entire day
-    if (events.isEmpty()) {
-      availableRanges.add(TimeRange.WHOLE_DAY);
+    // Collect the intervals of the requested attendees only. Each event of a mandatory attendee
+    // counts, while optional attendees skip events with unreasonable event times.
+    IntervalBuffer busyIntervals = BUSY_INTERVALS.get();
+    busyIntervals.clear();
+    for (int id = attendeeIds.nextSetBit(0); id >= 0; id = attendeeIds.nextSetBit(id + 1)) {
+      source.addIntervals(id, busyIntervals);
+    }
+    for (int id = optionalAttendeeIds.nextSetBit(0); id >= 0;
+        id = optionalAttendeeIds.nextSetBit(id + 1)) {
+      addReasonableOptionalIntervals(source, id, meetingDuration, busyIntervals);
+    }
+
+    return getFreeRanges(busyIntervals, meetingDuration);
+  }
+
+  /**
+   * Answers every request in {@code requests} against the same {@code events}. The events are
+   * indexed once and shared by all of the requests, which are answered in parallel. The result at
+   * each position is the answer to the request at the same position.
+   */
+  public List<Collection<TimeRange>> queryAll(
+      Collection<Event> events, List<MeetingRequest> requests) {
+    return queryAll(new EventIndex(events), requests);
+  }
+
+  /**
+   * Same as {@code queryAll(Collection<Event>, List<MeetingRequest>)}, but uses a prebuilt
+   * {@code EventIndex}.
+   */
+  public List<Collection<TimeRange>> queryAll(EventIndex index, List<MeetingRequest> requests) {
+    return queryAll((BusyIntervalSource) index, requests);
+  }
+
+  /**
+   * Same as {@code queryAll(Collection<Event>, List<MeetingRequest>)}, but answers every request
+   * from the same latest version of the busy intervals kept by {@code calendar}.
+   */
+  public List<Collection<TimeRange>> queryAll(Calendar calendar, List<MeetingRequest> requests) {
+    return queryAll((BusyIntervalSource) calendar.getVersion(), requests);
+  }
+
+  /**
+   * Same as {@code queryAll(Collection<Event>, List<MeetingRequest>)}, but answers from the mapped
+   * {@code snapshot} file.
+   */
+  public List<Collection<TimeRange>> queryAll(
+      CalendarSnapshot snapshot, List<MeetingRequest> requests) {
+    return queryAll((BusyIntervalSource) snapshot, requests);
+  }
+
+  private List<Collection<TimeRange>> queryAll(
+      BusyIntervalSource source, List<MeetingRequest> requests) {
+    // The source can be read from many threads and every worker thread has its own scratch buffer,
+    // so the requests can be answered in parallel. An ordered stream keeps the answers in order.
+    return requests.parallelStream()
+        .map(request -> query(source, request))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the times when every mandatory attendee of {@code request} is free, ranked by how many
+   * of the optional attendees can also make it. Unlike {@code query}, optional attendees never rule
+   * a time out; each one who is free counts towards the rank instead.
+   *
+   * <p>For every number k, each longest range in which at least k optional attendees are free for
+   * the whole meeting duration is returned once, labelled with the number of optional attendees
+   * free for all of it. The ranges are sorted by that number, largest first, and then by start.
+   * Because a longer range may hold fewer optional attendees, ranges of different ranks can nest.
+   */
+  public List<RankedTimeRange> queryRanked(Collection<Event> events, MeetingRequest request) {
+    return queryRanked(new EventIndex(events), request);
+  }
+
+  /**
+   * Same as {@code queryRanked(Collection<Event>, MeetingRequest)}, but uses a prebuilt
+   * {@code EventIndex}.
+   */
+  public List<RankedTimeRange> queryRanked(EventIndex index, MeetingRequest request) {
+    return queryRanked((BusyIntervalSource) index, request);
+  }
+
+  /**
+   * Same as {@code queryRanked(Collection<Event>, MeetingRequest)}, but answers from the latest
+   * version of the busy intervals kept by {@code calendar}.
+   */
+  public List<RankedTimeRange> queryRanked(Calendar calendar, MeetingRequest request) {
+    return queryRanked((BusyIntervalSource) calendar.getVersion(), request);
+  }
+
+  // Sweep the day once over the sorted boundaries of every optional attendee's busy intervals,
+  // keeping a count of how many of them are busy. This takes O((n + m) log (n + m)) time for n
+  // mandatory and m optional busy intervals.
+  private List<RankedTimeRange> queryRanked(BusyIntervalSource source, MeetingRequest request) {
+    long meetingDuration = request.getDuration();
+    List<RankedTimeRange> rankedRanges = new ArrayList<>();
+
+    // Check when the meeting is greater than the whole day and return an empty result
+    if (meetingDuration > TimeRange.WHOLE_DAY.duration()) {
+      return rankedRanges;
+    }
+
+    // The free time of the mandatory attendees is split into ranges by the busy intervals
+    BitSet attendeeIds = request.getAttendeeIds();
+    IntervalBuffer busyIntervals = BUSY_INTERVALS.get();
+    busyIntervals.clear();
+    for (int id = attendeeIds.nextSetBit(0); id >= 0; id = attendeeIds.nextSetBit(id + 1)) {
+      source.addIntervals(id, busyIntervals);
+    }
+    busyIntervals.sort();
+    busyIntervals.merge();
+
+    // Each optional attendee's intervals are merged first so that an attendee is counted busy at
+    // most once at any time. Every merged interval adds a +1 change at its start and a -1 change at
+    // its end, packed like an interval with the time as the start and the change as the end.
+    BitSet optionalAttendeeIds = request.getOptionalAttendeeIds();
+    IntervalBuffer attendeeIntervals = new IntervalBuffer();
+    IntervalBuffer changes = new IntervalBuffer();
+    for (int id = optionalAttendeeIds.nextSetBit(0); id >= 0;
+        id = optionalAttendeeIds.nextSetBit(id + 1)) {
+      attendeeIntervals.clear();
+      source.addIntervals(id, attendeeIntervals);
+      attendeeIntervals.sort();
+      attendeeIntervals.merge();
+      for (int i = 0; i < attendeeIntervals.size(); i++) {
+        changes.add(attendeeIntervals.start(i), 1);
+        changes.add(attendeeIntervals.end(i), -1);
+      }
+    }
+    changes.sort();
+
+    int optionalCount = optionalAttendeeIds.cardinality();
+    RankedRangeSweep sweep = new RankedRangeSweep(optionalCount, changes);
+    int freeStart = TimeRange.START_OF_DAY;
+    for (int i = 0; i < busyIntervals.size(); i++) {
+      sweep.addRankedRanges(freeStart, busyIntervals.start(i), meetingDuration, rankedRanges);
+      freeStart = busyIntervals.end(i);
+    }
+    sweep.addRankedRanges(freeStart, TimeRange.WHOLE_DAY.end(), meetingDuration, rankedRanges);
+
+    rankedRanges.sort(ORDER_BY_RANK);
+    return rankedRanges;
+  }
+
+  /**
+   * Returns the times when everyone in {@code request} can meet in a room of {@code rooms} that
+   * seats all of the attendees and optional attendees. Attendee availability is worked out once,
+   * as in {@code query}, and then intersected with the bookings of every room that is big enough.
+   *
+   * <p>Each returned range is a longest time in which one room is free for at least the meeting
+   * duration, so a time can be returned once for every room that fits. The ranges are sorted by
+   * start, and rooms with the same start by capacity, smallest first.
+   */
+  public List<RoomTimeRange> queryRooms(
+      EventIndex index, RoomIndex rooms, MeetingRequest request) {
+    return queryRooms((BusyIntervalSource) index, rooms, request);
+  }
+
+  /**
+   * Same as {@code queryRooms(EventIndex, RoomIndex, MeetingRequest)}, but answers from the
+   * latest version of the busy intervals kept by {@code calendar}.
+   */
+  public List<RoomTimeRange> queryRooms(
+      Calendar calendar, RoomIndex rooms, MeetingRequest request) {
+    return queryRooms((BusyIntervalSource) calendar.getVersion(), rooms, request);
+  }
+
+  private List<RoomTimeRange> queryRooms(
+      BusyIntervalSource source, RoomIndex rooms, MeetingRequest request) {
+    List<RoomTimeRange> roomRanges = new ArrayList<>();
+    Collection<TimeRange> freeRanges = query(source, request);
+    if (freeRanges.isEmpty()) {
+      return roomRanges;
+    }
+
+    long meetingDuration = request.getDuration();
+    int seats = request.getAttendees().size() + request.getOptionalAttendees().size();
+    IntervalBuffer roomFree = ROOM_FREE_INTERVALS.get();
+    long[] keys = new long[16];
+    int keyCount = 0;
+    for (int position = rooms.firstSeating(seats); position < rooms.size(); position++) {
+      roomFree.clear();
+      addRoomFreeIntervals(freeRanges, rooms.getBusyIntervals(position), meetingDuration, roomFree);
+      for (int i = 0; i < roomFree.size(); i++) {
+        if (keyCount == keys.length) {
+          keys = Arrays.copyOf(keys, keyCount * 2);
+        }
+        keys[keyCount++] = ((long) roomFree.start(i) << ROOM_KEY_START_SHIFT)
+            | ((long) position << ROOM_KEY_END_BITS) | roomFree.end(i);
+      }
+    }
+
+    // Sorting the keys orders the ranges by start and then by room position, which is capacity
+    // order
+    Arrays.sort(keys, 0, keyCount);
+    int endMask = (1 << ROOM_KEY_END_BITS) - 1;
+    for (int i = 0; i < keyCount; i++) {
+      int start = (int) (keys[i] >>> ROOM_KEY_START_SHIFT);
+      int position = (int) (keys[i] >>> ROOM_KEY_END_BITS) & Integer.MAX_VALUE;
+      int end = (int) keys[i] & endMask;
+      roomRanges.add(new RoomTimeRange(
+          TimeRange.fromStartEnd(start, end, false), rooms.getRoom(position)));
+    }
+    return roomRanges;
+  }
+
+  /**
+   * Returns the earliest time when everyone in {@code request} can meet, or nothing if there is no
+   * such time. Only the busy intervals before that time are put in order.
+   */
+  public Optional<TimeRange> findEarliest(Collection<Event> events, MeetingRequest request) {
+    return findFirstK(events, request, 1).stream().findFirst();
+  }
+
+  /**
+   * Same as {@code findEarliest(Collection<Event>, MeetingRequest)}, but uses a prebuilt
+   * {@code EventIndex}.
+   */
+  public Optional<TimeRange> findEarliest(EventIndex index, MeetingRequest request) {
+    return findFirstK(index, request, 1).stream().findFirst();
+  }
+
+  /**
+   * Returns the first {@code k} possible meeting times for {@code request}, or all of them if there
+   * are fewer. These are the same as the first {@code k} ranges that {@code query} returns. Events
+   * are still scanned once, but the busy intervals are taken out of a heap in start order and the
+   * search stops as soon as {@code k} ranges are found.
+   */
+  public List<TimeRange> findFirstK(Collection<Event> events, MeetingRequest request, int k) {
+    checkK(k);
+    List<TimeRange> availableRanges = new ArrayList<>();
+    long meetingDuration = request.getDuration();
+
+    // Check when the meeting is greater than the whole day and return an empty result
+    if (meetingDuration > TimeRange.WHOLE_DAY.duration()) {
+      return availableRanges;
+    }
+
+    IntervalBuffer busyIntervals = BUSY_INTERVALS.get();
+    busyIntervals.clear();
+    addBusyIntervals(events, request, busyIntervals);
+    busyIntervals.heapify();
+
+    int freeStart = TimeRange.START_OF_DAY;
+    while (!busyIntervals.isEmpty()) {
+      long interval = busyIntervals.pollFirst();
+      addIfLongEnough(
+          availableRanges, freeStart, IntervalBuffer.start(interval), meetingDuration);
+      if (availableRanges.size() == k) {
+        return availableRanges;
+      }
+      freeStart = Math.max(freeStart, IntervalBuffer.end(interval));
+    }
+
+    // Add the rest of the day after the last busy interval
+    addIfLongEnough(availableRanges, freeStart, TimeRange.WHOLE_DAY.end(), meetingDuration);
+    return availableRanges;
+  }
+
+  /**
+   * Same as {@code findFirstK(Collection<Event>, MeetingRequest, int)}, but uses a prebuilt
+   * {@code EventIndex}.
+   */
+  public List<TimeRange> findFirstK(EventIndex index, MeetingRequest request, int k) {
+    return findFirstK(index, request, k, TimeRange.START_OF_DAY);
+  }
+
+  /**
+   * Returns the first {@code k} possible meeting times for {@code request} that start at
+   * {@code from} or later. A range that is still going on at {@code from} is cut to start there.
+   *
+   * <p>Each requested attendee's events are read in start order straight from {@code index},
+   * starting with the first one that is still going on at {@code from}, which is found with a
+   * binary search. Events that end earlier are never looked at, and the search stops as soon as
+   * {@code k} ranges are found.
+   */
+  public List<TimeRange> findFirstK(EventIndex index, MeetingRequest request, int k, int from) {
+    checkK(k);
+    List<TimeRange> availableRanges = new ArrayList<>();
+    long meetingDuration = request.getDuration();
+
+    // Check when the meeting is greater than the whole day and return an empty result
+    if (meetingDuration > TimeRange.WHOLE_DAY.duration()) {
       return availableRanges;
     }
 
-    // Loop through events and check through combinations of optional and regular attendees
+    // Start one cursor per attendee at their first event that ends after {@code from}
+    BitSet attendeeIds = request.getAttendeeIds();
+    BitSet optionalAttendeeIds = request.getOptionalAttendeeIds();
+    CursorHeap cursors =
+        new CursorHeap(attendeeIds.cardinality() + optionalAttendeeIds.cardinality());
+    for (int id = attendeeIds.nextSetBit(0); id >= 0; id = attendeeIds.nextSetBit(id + 1)) {
+      cursors.add(new IntervalCursor(index, id, from, false, meetingDuration));
+    }
+    for (int id = optionalAttendeeIds.nextSetBit(0); id >= 0;
+        id = optionalAttendeeIds.nextSetBit(id + 1)) {
+      cursors.add(new IntervalCursor(index, id, from, true, meetingDuration));
+    }
+
+    int freeStart = Math.max(from, TimeRange.START_OF_DAY);
+    while (!cursors.isEmpty()) {
+      long interval = cursors.first();
+      addIfLongEnough(availableRanges, freeStart, IntervalBuffer.start(interval), meetingDuration);
+      if (availableRanges.size() == k) {
+        return availableRanges;
+      }
+      freeStart = Math.max(freeStart, IntervalBuffer.end(interval));
+      cursors.advanceFirst();
+    }
+
+    // Add the rest of the day after the last busy interval
+    addIfLongEnough(availableRanges, freeStart, TimeRange.WHOLE_DAY.end(), meetingDuration);
+    return availableRanges;
+  }
+
+  private static void checkK(int k) {
+    if (k < 1) {
+      throw new IllegalArgumentException("k must be at least 1");
+    }
+  }
+
+  // Sort the busy intervals once by their start times and merge the overlapping ones in a single
+  // pass. Only the free gaps between the merged intervals become {@code TimeRange} objects.
+  private List<TimeRange> getFreeRanges(IntervalBuffer busyIntervals, long meetingDuration) {
+    List<TimeRange> availableRanges = new ArrayList<>();
+    busyIntervals.sort();
+    busyIntervals.merge();
+    addFreeRanges(busyIntervals, meetingDuration, availableRanges);
+    return availableRanges;
+  }
+
+  // Add the gaps between sorted, disjoint busy intervals that are long enough for the meeting
+  private void addFreeRanges(
+      IntervalBuffer busyIntervals, long meetingDuration, List<TimeRange> availableRanges) {
+    int freeStart = TimeRange.START_OF_DAY;
+    for (int i = 0; i < busyIntervals.size(); i++) {
+      addIfLongEnough(availableRanges, freeStart, busyIntervals.start(i), meetingDuration);
+      freeStart = busyIntervals.end(i);
+    }
+
+    // Add the rest of the day after the last busy interval
+    addIfLongEnough(availableRanges, freeStart, TimeRange.WHOLE_DAY.end(), meetingDuration);
+  }
+
+  // Add the parts of the sorted free ranges that are not covered by the room's sorted, disjoint
+  // bookings and are long enough for the meeting
+  private static void addRoomFreeIntervals(Collection<TimeRange> freeRanges, long[] bookings,
+      long meetingDuration, IntervalBuffer roomFree) {
+    int next = 0;
+    for (TimeRange free : freeRanges) {
+      // Skip the bookings that end before this free range. One booking can overlap several free
+      // ranges, so the last booking checked is not skipped.
+      while (next < bookings.length && IntervalBuffer.end(bookings[next]) <= free.start()) {
+        next++;
+      }
+
+      int freeStart = free.start();
+      for (int i = next; i < bookings.length && IntervalBuffer.start(bookings[i]) < free.end();
+          i++) {
+        addIntervalIfLongEnough(
+            roomFree, freeStart, IntervalBuffer.start(bookings[i]), meetingDuration);
+        freeStart = Math.max(freeStart, IntervalBuffer.end(bookings[i]));
+      }
+      addIntervalIfLongEnough(roomFree, freeStart, free.end(), meetingDuration);
+    }
+  }
+
+  private static void addIntervalIfLongEnough(
+      IntervalBuffer intervals, int start, int end, long meetingDuration) {
+    if (end > start && end - start >= meetingDuration) {
+      intervals.add(start, end);
+    }
+  }
+
+  // Add the time ranges of every event that keeps a requested attendee busy
+  private void addBusyIntervals(
+      Collection<Event> events, MeetingRequest request, IntervalBuffer busyIntervals) {
+    // Checking for shared attendees is a word-wise AND of the interned attendee ids, so no strings
+    // are hashed per event.
+    long[] attendeeIds = request.getAttendeeIds().toLongArray();
+    long[] optionalAttendeeIds = request.getOptionalAttendeeIds().toLongArray();
+    long meetingDuration = request.getDuration();
+
     for (Event event : events) {
       TimeRange currentWhen = event.getWhen();
-      
-      boolean isCurrentEventAttendeesEmpty = event.getAttendees().isEmpty();
-      boolean currentEventContainsAtLeastOneAttendeeInRequest = containsAtLeastOne(request.getAttendees(), event.getAttendees());
-      boolean currentEventContainsAtLeastOneOptionalAttendeeInRequest = containsAtLeastOne(request.getOptionalAttendees(), event.getAttendees());
-      boolean isRequestAttendeesEmpty = request.getAttendees().isEmpty();
-      
-      if (!isCurrentEventAttendeesEmpty && currentEventContainsAtLeastOneAttendeeInRequest) {
-        // If the current event has no attendees (including optional) and
-        // the event doesn't have any attendees from the event AND in the request, then dont add to range. 
-        unacceptableRanges.add(currentWhen);
-      } else if (isRequestAttendeesEmpty && currentEventContainsAtLeastOneOptionalAttendeeInRequest) {
-        // If the second boolean check above fails while the first doesn't, then check if the request has no mandatory
-        // attendees and if there's at least one optional attendee in the request. If both are true, add their time ranges 
-        // to unacceptableRanges. Basically, act as if optional attendees are mandatory attendees now.
-        unacceptableRanges.add(currentWhen);
-      } else if (currentEventContainsAtLeastOneOptionalAttendeeInRequest) {
-        // In order to find the most optimal time for both mandatory and optional attendees, we add optional attendees
-        // and act as if they're mandatory, so we add their time ranges to the unacceptableRanges
-        unacceptableRanges.add(currentWhen);
-      }
-    }
-
-    // Add all optional attendee ranges with unreasonable event times to unacceptableRanges (such as the entire day of the duration is less than the meeting duration)
-    for (int i = 0; i < unacceptableRanges.size(); i++){
-      TimeRange elem = unacceptableRanges.get(i);
-      if (elem.duration() < request.getDuration() || elem.equals(TimeRange.WHOLE_DAY)) {
-        unacceptableRanges.remove(i);
-        i--;
-      }
-    }
-
-    // Check if the unacceptable range is empty
-    if (unacceptableRanges.isEmpty()) {
-      availableRanges.add(TimeRange.WHOLE_DAY);
-      return availableRanges;
+
+      // An empty range can't keep anyone busy
+      if (currentWhen.duration() <= 0) {
+        continue;
+      }
+
+      if (event.sharesAttendee(attendeeIds)) {
+        busyIntervals.add(currentWhen.start(), currentWhen.end());
+      } else if (event.sharesAttendee(optionalAttendeeIds)
+          && !isUnreasonableOptionalRange(
+              currentWhen.start(), currentWhen.end(), meetingDuration)) {
+        // In order to find the most optimal time for both mandatory and optional attendees, we act
+        // as if optional attendees are mandatory, so we add their time ranges to the busy ranges.
+        busyIntervals.add(currentWhen.start(), currentWhen.end());
+      }
     }
+  }
+
+  // Copy the set bits of {@code ids} into {@code array} starting at {@code from}. Returns the index
+  // after the last copied id.
+  private static int copyIds(BitSet ids, int[] array, int from) {
+    int next = from;
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      array[next++] = id;
+    }
+    return next;
+  }
+
+  // Add the intervals of an optional attendee that aren't unreasonable for the meeting
+  private static void addReasonableOptionalIntervals(
+      BusyIntervalSource source, int id, long meetingDuration, IntervalBuffer busyIntervals) {
+    int from = busyIntervals.size();
+    source.addIntervals(id, busyIntervals);
+
+    // Keep only the new intervals that are reasonable, moving them down over the dropped ones
+    int kept = from;
+    for (int i = from; i < busyIntervals.size(); i++) {
+      int start = busyIntervals.start(i);
+      int end = busyIntervals.end(i);
+      if (!isUnreasonableOptionalRange(start, end, meetingDuration)) {
+        busyIntervals.set(kept++, busyIntervals.get(i));
+      }
+    }
+    busyIntervals.truncate(kept);
+  }
 
-    // Sort through the ranges by their start times
-    sortTimeRangesByStart(unacceptableRanges);
+  // Optional attendee ranges with unreasonable event times are ignored (such as the entire day or a
+  // range shorter than the meeting duration)
+  private static boolean isUnreasonableOptionalRange(int start, int end, long meetingDuration) {
+    return end - start < meetingDuration
+        || (start == TimeRange.WHOLE_DAY.start() && end == TimeRange.WHOLE_DAY.end());
+  }
 
-    // Get earliest availability and add to result
-    int start = getEarliestTimeRangeFromStart(unacceptableRanges);
-    if ((long)start >= meetingDuration) {
-      availableRanges.add(TimeRange.fromStartDuration(0, start));
+  // Add the range from start to end to the result if the meeting fits in it
+  private void addIfLongEnough(List<TimeRange> ranges, int start, int end, long meetingDuration) {
+    if (end > start && end - start >= meetingDuration) {
+      ranges.add(TimeRange.fromStartEnd(start, end, false));
     }
+  }
 
-    // Loop through unacceptable events and add pockets to the result
-    for (int i = 0; i < unacceptableRanges.size() - 1; i++) {
-      TimeRange currentRange = unacceptableRanges.get(i);
-      TimeRange nextRange = unacceptableRanges.get(i+1);
-      if (!currentRange.overlaps(nextRange)) {
-        int timeBetweenRanges = nextRange.start() - currentRange.end();
-        if (timeBetweenRanges >= meetingDuration)
-          availableRanges.add(TimeRange.fromStartDuration(currentRange.end(), timeBetweenRanges));
+  /**
+   * Merges the busy intervals of a slice of the requested attendees. Slices that are too big are
+   * split in half and the two merged halves are combined with a linear merge.
+   */
+  private static final class MergeBusyIntervalsTask extends RecursiveTask<IntervalBuffer> {
+    private static final long serialVersionUID = 1L;
+
+    private final BusyIntervalSource source;
+    // The requested attendee ids, mandatory attendees first and then optional attendees.
+    private final int[] ids;
+    // The position in {@code ids} of the first optional attendee.
+    private final int optionalFrom;
+    private final long meetingDuration;
+    private final int from;
+    private final int to;
+
+    MergeBusyIntervalsTask(BusyIntervalSource source, int[] ids, int optionalFrom,
+        long meetingDuration, int from, int to) {
+      this.source = source;
+      this.ids = ids;
+      this.optionalFrom = optionalFrom;
+      this.meetingDuration = meetingDuration;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected IntervalBuffer compute() {
+      if (to - from <= PARALLEL_LEAF_ATTENDEES) {
+        IntervalBuffer busyIntervals = new IntervalBuffer();
+        for (int i = from; i < to; i++) {
+          if (i < optionalFrom) {
+            source.addIntervals(ids[i], busyIntervals);
+          } else {
+            addReasonableOptionalIntervals(source, ids[i], meetingDuration, busyIntervals);
+          }
+        }
+        busyIntervals.sort();
+        busyIntervals.merge();
+        return busyIntervals;
       }
+
+      int middle = (from + to) >>> 1;
+      MergeBusyIntervalsTask left =
+          new MergeBusyIntervalsTask(source, ids, optionalFrom, meetingDuration, from, middle);
+      MergeBusyIntervalsTask right =
+          new MergeBusyIntervalsTask(source, ids, optionalFrom, meetingDuration, middle, to);
+      left.fork();
+      IntervalBuffer rightIntervals = right.compute();
+      return IntervalBuffer.union(left.join(), rightIntervals);
     }
-    
-    // Get latest availability and add to result
-    int end = getLatestTimeRangeFromStart(unacceptableRanges);
-    int dayDuration = 24 * 60;
-    int timeAvailableUntilEndOfDay = dayDuration - end;
-    if (timeAvailableUntilEndOfDay >= (int)meetingDuration) {
-      availableRanges.add(TimeRange.fromStartDuration(end, timeAvailableUntilEndOfDay));
+  }
+
+  /**
+   * Walks forward through the sorted changes in the number of busy optional attendees, one free
+   * range of the mandatory attendees at a time. Within a free range, the available count is
+   * constant between changes, which splits the range into segments. The longest ranges where at
+   * least k optional attendees are free are then the widest runs of segments whose counts are all
+   * at least k, which a stack of increasing counts finds in a single pass.
+   */
+  private static final class RankedRangeSweep {
+    private final int optionalCount;
+    private final IntervalBuffer changes;
+    private int nextChange;
+    private int busyCount;
+
+    // The segments of the current free range: where each one starts and how many optional
+    // attendees are free for all of it. A segment ends where the next one starts.
+    private int[] segmentStarts = new int[16];
+    private int[] segmentCounts = new int[16];
+    private int segmentCount;
+
+    // The stack of segment indexes with strictly increasing counts, and the first segment of the
+    // run that each of them heads.
+    private int[] stack = new int[16];
+    private int[] runStarts = new int[16];
+
+    RankedRangeSweep(int optionalCount, IntervalBuffer changes) {
+      this.optionalCount = optionalCount;
+      this.changes = changes;
     }
 
-    return availableRanges;
+    // Add the ranked ranges inside the free range from start to end. Free ranges must be given in
+    // order and must not overlap.
+    void addRankedRanges(
+        int start, int end, long meetingDuration, List<RankedTimeRange> rankedRanges) {
+      // Apply every change up to the start of the range, then split the range at each change
+      // inside it
+      applyChangesBefore(start + 1);
+      if (end - start < meetingDuration || end <= start) {
+        return;
+      }
+
+      segmentCount = 0;
+      addSegment(start);
+      while (nextChange < changes.size() && changes.start(nextChange) < end) {
+        int time = changes.start(nextChange);
+        applyChangesBefore(time + 1);
+        addSegment(time);
+      }
+
+      int top = -1;
+      for (int i = 0; i <= segmentCount; i++) {
+        // A count of -1 after the last segment closes every run that is still open
+        int count = i < segmentCount ? segmentCounts[i] : -1;
+        int runStart = i;
+        while (top >= 0 && segmentCounts[stack[top]] >= count) {
+          int segment = stack[top];
+          runStart = runStarts[top];
+          top--;
+          // A run with the same count as the current segment continues in it instead
+          if (segmentCounts[segment] > count) {
+            int runEnd = i < segmentCount ? segmentStarts[i] : end;
+            int runBegin = segmentStarts[runStart];
+            if (runEnd - runBegin >= meetingDuration) {
+              rankedRanges.add(new RankedTimeRange(
+                  TimeRange.fromStartEnd(runBegin, runEnd, false), segmentCounts[segment]));
+            }
+          }
+        }
+        if (i < segmentCount) {
+          top++;
+          stack[top] = i;
+          runStarts[top] = runStart;
+        }
+      }
+    }
+
+    // Apply every change that happens before {@code time}
+    private void applyChangesBefore(int time) {
+      while (nextChange < changes.size() && changes.start(nextChange) < time) {
+        busyCount += changes.end(nextChange);
+        nextChange++;
+      }
+    }
+
+    // Start a new segment at {@code start} with the current count, unless the count didn't change
+    private void addSegment(int start) {
+      int count = optionalCount - busyCount;
+      if (segmentCount > 0 && segmentCounts[segmentCount - 1] == count) {
+        return;
+      }
+      if (segmentCount == segmentStarts.length) {
+        int capacity = segmentCount * 2;
+        segmentStarts = Arrays.copyOf(segmentStarts, capacity);
+        segmentCounts = Arrays.copyOf(segmentCounts, capacity);
+        stack = Arrays.copyOf(stack, capacity);
+        runStarts = Arrays.copyOf(runStarts, capacity);
+      }
+      segmentStarts[segmentCount] = start;
+      segmentCounts[segmentCount] = count;
+      segmentCount++;
+    }
   }
 
-  // Insertion sort through time range list by start times
-  private void sortTimeRangesByStart(List<TimeRange> list) {
-    int n = list.size(); 
-    for (int i = 1; i < n; i++) { 
-      TimeRange currentTimeRange = list.get(i); 
-      int j = i - 1;   
-      while (j >= 0 && list.get(j).start() > currentTimeRange.start()) { 
-        TimeRange prevTimeRange = list.get(j);
-        list.set(j + 1, prevTimeRange);  
-        j = j - 1; 
-      } 
-      list.set(j + 1, currentTimeRange); 
-    } 
-  }
-
-  // If theres at least one element in collection a that is in collection b
-  private boolean containsAtLeastOne(Collection<String> a, Collection<String> b) {
-    if (a.isEmpty() || b.isEmpty())
+  /**
+   * Walks through the packed intervals of one attendee in an {@code EventIndex} in start order. For
+   * optional attendees, intervals that don't count for the meeting are skipped.
+   */
+  private static final class IntervalCursor {
+    private final long[] intervals;
+    private final boolean optional;
+    private final long meetingDuration;
+    private int position;
+
+    // The interval at {@code position}, kept here so the heap can compare cursors without reaching
+    // into their arrays.
+    private long current;
+
+    IntervalCursor(EventIndex index, int id, int from, boolean optional, long meetingDuration) {
+      this.intervals = index.getIntervals(id);
+      this.optional = optional;
+      this.meetingDuration = meetingDuration;
+      this.position = index.firstEndingAfter(id, from) - 1;
+      advance();
+    }
+
+    boolean hasInterval() {
+      return position < intervals.length;
+    }
+
+    // Move to the next interval that counts. Returns false when there are none left.
+    boolean advance() {
+      position++;
+      while (position < intervals.length) {
+        current = intervals[position];
+        if (!optional || !isUnreasonableOptionalRange(
+            IntervalBuffer.start(current), IntervalBuffer.end(current), meetingDuration)) {
+          return true;
+        }
+        position++;
+      }
       return false;
-    for (String elementA : a) {
-      if (b.contains(elementA))
-        return true;
     }
-    return false;
   }
 
-  // Get the earliest start in the time range. Returns -1 if ranges list is empty
-  private int getEarliestTimeRangeFromStart(List<TimeRange> timeRanges) {
-    if (timeRanges.isEmpty()) {
-      return -1;
+  /**
+   * A binary min-heap of cursors ordered by their current interval. Taking the first interval
+   * advances its cursor in place and sifts it down once, instead of removing it and adding it back.
+   */
+  private static final class CursorHeap {
+    private final IntervalCursor[] cursors;
+    private int size;
+
+    CursorHeap(int capacity) {
+      this.cursors = new IntervalCursor[capacity];
     }
-    int min = timeRanges.get(0).start();
-    for (int i = 1; i < timeRanges.size(); i++) {
-      TimeRange currentTimeRange = timeRanges.get(i);
-      if (currentTimeRange.start() < min)
-        min = currentTimeRange.start();
+
+    // Add {@code cursor} unless it has run out of intervals
+    void add(IntervalCursor cursor) {
+      if (!cursor.hasInterval()) {
+        return;
+      }
+
+      // Sift the new cursor up from the bottom of the heap
+      int index = size++;
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (cursors[parent].current <= cursor.current) {
+          break;
+        }
+        cursors[index] = cursors[parent];
+        index = parent;
+      }
+      cursors[index] = cursor;
     }
-    return min;
-  }
 
-  // Get the latest end in the time range. Returns -1 if ranges list is empty
-  private int getLatestTimeRangeFromStart(List<TimeRange> timeRanges) {
-    if (timeRanges.isEmpty()) {
-      return -1;
+    boolean isEmpty() {
+      return size == 0;
     }
-    int max = timeRanges.get(0).end();
-    for (int i = 1; i < timeRanges.size(); i++) {
-      TimeRange currentTimeRange = timeRanges.get(i);
-      if (currentTimeRange.end() > max)
-        max = currentTimeRange.end();
+
+    // Returns the smallest current interval of all the cursors
+    long first() {
+      return cursors[0].current;
+    }
+
+    // Move the cursor with the smallest interval on to its next one
+    void advanceFirst() {
+      IntervalCursor cursor = cursors[0];
+      if (!cursor.advance()) {
+        cursor = cursors[--size];
+        cursors[size] = null;
+        if (size == 0) {
+          return;
+        }
+      }
+
+      int index = 0;
+      int half = size >>> 1;
+      while (index < half) {
+        int child = 2 * index + 1;
+        if (child + 1 < size && cursors[child + 1].current < cursors[child].current) {
+          child++;
+        }
+        if (cursor.current <= cursors[child].current) {
+          break;
+        }
+        cursors[index] = cursors[child];
+        index = child;
+      }
+      cursors[index] = cursor;
     }
-    return max;
   }
 }
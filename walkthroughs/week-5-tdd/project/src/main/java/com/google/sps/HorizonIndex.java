@@ -0,0 +1,191 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An index from each attendee to the time ranges of their {@code EpochEvent}s, sorted by start.
+ * Any window of time can be found with a binary search, so a query over a horizon only reads the
+ * events that fall inside it, however far the calendar reaches. Each attendee's
+ * {@code RecurringEvent}s are kept as recurrences and only expanded inside the horizon of a query.
+ * Indexes are read-only and can be shared between threads.
+ */
+public final class HorizonIndex {
+  private static final long[] NO_TIMES = new long[0];
+  private static final Recurrence[] NO_RECURRENCES = new Recurrence[0];
+
+  // The starts and ends of each attendee's events, sorted by start and indexed by the attendee's id
+  // in the shared {@code AttendeeDictionary}.
+  private final long[][] startsById;
+  private final long[][] endsById;
+
+  // The largest end of each attendee's first i + 1 events. Unlike the ends themselves, these never
+  // decrease, so the first event that reaches past a point can be found with a binary search.
+  private final long[][] maxEndsById;
+
+  // The recurrences of each attendee's recurring events, indexed by the attendee's id.
+  private final Recurrence[][] recurrencesById;
+
+  /**
+   * Creates an index of {@code events}.
+   *
+   * @param events The events to index. Must be non-null.
+   */
+  public HorizonIndex(Collection<EpochEvent> events) {
+    this(events, Collections.emptyList());
+  }
+
+  /**
+   * Creates an index of one-off {@code events} and {@code recurringEvents}.
+   *
+   * @param events The one-off events to index. Must be non-null.
+   * @param recurringEvents The recurring events to index. Must be non-null.
+   */
+  public HorizonIndex(Collection<EpochEvent> events, Collection<RecurringEvent> recurringEvents) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    if (recurringEvents == null) {
+      throw new IllegalArgumentException("recurringEvents cannot be null");
+    }
+
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    List<List<EpochTimeRange>> rangesById = new ArrayList<>();
+    for (EpochEvent event : events) {
+      EpochTimeRange when = event.getWhen();
+
+      // An empty range can't keep anyone busy
+      if (when.duration() <= 0) {
+        continue;
+      }
+
+      for (String attendee : event.getAttendees()) {
+        int id = dictionary.intern(attendee);
+        while (rangesById.size() <= id) {
+          rangesById.add(null);
+        }
+        List<EpochTimeRange> ranges = rangesById.get(id);
+        if (ranges == null) {
+          ranges = new ArrayList<>();
+          rangesById.set(id, ranges);
+        }
+        ranges.add(when);
+      }
+    }
+
+    startsById = new long[rangesById.size()][];
+    endsById = new long[rangesById.size()][];
+    maxEndsById = new long[rangesById.size()][];
+    for (int id = 0; id < rangesById.size(); id++) {
+      List<EpochTimeRange> ranges = rangesById.get(id);
+      if (ranges == null) {
+        startsById[id] = NO_TIMES;
+        endsById[id] = NO_TIMES;
+        maxEndsById[id] = NO_TIMES;
+        continue;
+      }
+
+      ranges.sort(EpochTimeRange.ORDER_BY_START);
+      long[] starts = new long[ranges.size()];
+      long[] ends = new long[ranges.size()];
+      long[] maxEnds = new long[ranges.size()];
+      long maxEnd = Long.MIN_VALUE;
+      for (int i = 0; i < ranges.size(); i++) {
+        starts[i] = ranges.get(i).start();
+        ends[i] = ranges.get(i).end();
+        maxEnd = Math.max(maxEnd, ends[i]);
+        maxEnds[i] = maxEnd;
+      }
+      startsById[id] = starts;
+      endsById[id] = ends;
+      maxEndsById[id] = maxEnds;
+    }
+
+    List<List<Recurrence>> recurrenceLists = new ArrayList<>();
+    for (RecurringEvent event : recurringEvents) {
+      for (String attendee : event.getAttendees()) {
+        int id = dictionary.intern(attendee);
+        while (recurrenceLists.size() <= id) {
+          recurrenceLists.add(null);
+        }
+        List<Recurrence> recurrences = recurrenceLists.get(id);
+        if (recurrences == null) {
+          recurrences = new ArrayList<>();
+          recurrenceLists.set(id, recurrences);
+        }
+        recurrences.add(event.getRecurrence());
+      }
+    }
+
+    recurrencesById = new Recurrence[recurrenceLists.size()][];
+    for (int id = 0; id < recurrenceLists.size(); id++) {
+      List<Recurrence> recurrences = recurrenceLists.get(id);
+      recurrencesById[id] =
+          recurrences == null ? NO_RECURRENCES : recurrences.toArray(NO_RECURRENCES);
+    }
+  }
+
+  /**
+   * Returns the sorted starts of the events of the attendee with the id {@code id}. The returned
+   * array is shared and must not be modified.
+   */
+  long[] getStarts(int id) {
+    return id < 0 || id >= startsById.length ? NO_TIMES : startsById[id];
+  }
+
+  /**
+   * Returns the ends of the events of the attendee with the id {@code id}, in the same order as
+   * {@code getStarts}. The returned array is shared and must not be modified.
+   */
+  long[] getEnds(int id) {
+    return id < 0 || id >= endsById.length ? NO_TIMES : endsById[id];
+  }
+
+  /**
+   * Returns the recurrences of the recurring events of the attendee with the id {@code id}. The
+   * returned array is shared and must not be modified.
+   */
+  Recurrence[] getRecurrences(int id) {
+    return id < 0 || id >= recurrencesById.length ? NO_RECURRENCES : recurrencesById[id];
+  }
+
+  /**
+   * Returns the position of the first event of the attendee with the id {@code id} that ends after
+   * {@code time}. Every earlier event is over by {@code time}.
+   */
+  int firstEndingAfter(int id, long time) {
+    if (id < 0 || id >= maxEndsById.length) {
+      return 0;
+    }
+
+    long[] maxEnds = maxEndsById[id];
+    int low = 0;
+    int high = maxEnds.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (maxEnds[middle] <= time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,238 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds meeting times over a horizon of any length, such as the next few weeks. The busy intervals
+ * of the requested attendees are streamed in start order straight out of a {@code HorizonIndex}, so
+ * nothing is built per day and the cost of a query grows with the number of events inside the
+ * horizon rather than with its length.
+ *
+ * <p>Recurring events are expanded lazily: each recurrence of a requested attendee gets its own
+ * iterator over the occurrences inside the horizon, and the iterators are merged with the one-off
+ * events in start order. Occurrences outside the horizon are never worked out.
+ *
+ * <p>Optional attendees follow the same rules as in {@code FindMeetingQuery}: their events count
+ * unless they are shorter than the meeting or last a whole day or more.
+ */
+public final class HorizonQuery {
+  private static final long MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  /**
+   * Returns the times within {@code horizon} when every attendee of {@code request} is free for at
+   * least the length of the meeting, in start order.
+   */
+  public List<EpochTimeRange> query(
+      Collection<EpochEvent> events, MeetingRequest request, EpochTimeRange horizon) {
+    return query(new HorizonIndex(events), request, horizon);
+  }
+
+  /**
+   * Same as {@code query(Collection<EpochEvent>, MeetingRequest, EpochTimeRange)}, but also counts
+   * the occurrences of {@code recurringEvents} inside the horizon.
+   */
+  public List<EpochTimeRange> query(Collection<EpochEvent> events,
+      Collection<RecurringEvent> recurringEvents, MeetingRequest request, EpochTimeRange horizon) {
+    return query(new HorizonIndex(events, recurringEvents), request, horizon);
+  }
+
+  /**
+   * Same as {@code query(Collection<EpochEvent>, MeetingRequest, EpochTimeRange)}, but uses a
+   * prebuilt {@code HorizonIndex}.
+   */
+  public List<EpochTimeRange> query(
+      HorizonIndex index, MeetingRequest request, EpochTimeRange horizon) {
+    if (horizon == null) {
+      throw new IllegalArgumentException("horizon cannot be null");
+    }
+
+    List<EpochTimeRange> availableRanges = new ArrayList<>();
+    long meetingDuration = request.getDuration();
+    if (meetingDuration > horizon.duration()) {
+      return availableRanges;
+    }
+
+    // Start one cursor per attendee at their first event that is still going on at the start of
+    // the horizon, and one per recurrence at its first occurrence in the horizon
+    PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+    BitSet attendeeIds = request.getAttendeeIds();
+    for (int id = attendeeIds.nextSetBit(0); id >= 0; id = attendeeIds.nextSetBit(id + 1)) {
+      addCursors(cursors, index, id, horizon, false, meetingDuration);
+    }
+    BitSet optionalAttendeeIds = request.getOptionalAttendeeIds();
+    for (int id = optionalAttendeeIds.nextSetBit(0); id >= 0;
+        id = optionalAttendeeIds.nextSetBit(id + 1)) {
+      addCursors(cursors, index, id, horizon, true, meetingDuration);
+    }
+
+    // Take the busy intervals in start order and emit each gap as soon as it is found
+    long freeStart = horizon.start();
+    while (!cursors.isEmpty() && cursors.peek().start() < horizon.end()) {
+      Cursor cursor = cursors.poll();
+      addIfLongEnough(availableRanges, freeStart, cursor.start(), meetingDuration);
+      freeStart = Math.max(freeStart, cursor.end());
+      cursor.advance();
+      addCursor(cursors, cursor);
+    }
+
+    // Add the rest of the horizon after the last busy interval
+    addIfLongEnough(availableRanges, freeStart, horizon.end(), meetingDuration);
+    return availableRanges;
+  }
+
+  // Add the cursors for the one-off and recurring events of one attendee
+  private static void addCursors(PriorityQueue<Cursor> cursors, HorizonIndex index, int id,
+      EpochTimeRange horizon, boolean optional, long meetingDuration) {
+    addCursor(cursors, new EventCursor(index, id, horizon.start(), optional, meetingDuration));
+    for (Recurrence recurrence : index.getRecurrences(id)) {
+      // An optional attendee's recurrence either always counts or never does
+      if (!optional || counts(recurrence.getDuration(), meetingDuration)) {
+        addCursor(cursors, new RecurrenceCursor(recurrence.occurrences(horizon)));
+      }
+    }
+  }
+
+  // Optional attendee ranges with unreasonable event times are ignored (such as a whole day or a
+  // range shorter than the meeting duration)
+  private static boolean counts(long eventDuration, long meetingDuration) {
+    return eventDuration >= meetingDuration && eventDuration < MINUTES_PER_DAY;
+  }
+
+  // Put {@code cursor} back in the queue unless it has run out of events
+  private static void addCursor(PriorityQueue<Cursor> cursors, Cursor cursor) {
+    if (cursor.hasInterval()) {
+      cursors.add(cursor);
+    }
+  }
+
+  // Add the range from start to end to the result if the meeting fits in it
+  private static void addIfLongEnough(
+      List<EpochTimeRange> ranges, long start, long end, long meetingDuration) {
+    if (end > start && end - start >= meetingDuration) {
+      ranges.add(EpochTimeRange.fromStartEnd(start, end));
+    }
+  }
+
+  /**
+   * Walks through busy intervals in start order.
+   */
+  private abstract static class Cursor implements Comparable<Cursor> {
+    abstract boolean hasInterval();
+
+    abstract long start();
+
+    abstract long end();
+
+    abstract void advance();
+
+    @Override
+    public int compareTo(Cursor other) {
+      return Long.compare(start(), other.start());
+    }
+  }
+
+  /**
+   * Walks through the one-off events of one attendee in start order. For optional attendees,
+   * events that don't count for the meeting are skipped.
+   */
+  private static final class EventCursor extends Cursor {
+    private final long[] starts;
+    private final long[] ends;
+    private final boolean optional;
+    private final long meetingDuration;
+    private int position;
+
+    EventCursor(HorizonIndex index, int id, long from, boolean optional, long meetingDuration) {
+      this.starts = index.getStarts(id);
+      this.ends = index.getEnds(id);
+      this.optional = optional;
+      this.meetingDuration = meetingDuration;
+      this.position = index.firstEndingAfter(id, from);
+      skipUnreasonable();
+    }
+
+    @Override
+    boolean hasInterval() {
+      return position < starts.length;
+    }
+
+    @Override
+    long start() {
+      return starts[position];
+    }
+
+    @Override
+    long end() {
+      return ends[position];
+    }
+
+    @Override
+    void advance() {
+      position++;
+      skipUnreasonable();
+    }
+
+    private void skipUnreasonable() {
+      if (!optional) {
+        return;
+      }
+      while (position < starts.length && !counts(ends[position] - starts[position],
+          meetingDuration)) {
+        position++;
+      }
+    }
+  }
+
+  /**
+   * Walks through the occurrences of one recurrence inside the horizon, working each one out only
+   * when the previous one has been used.
+   */
+  private static final class RecurrenceCursor extends Cursor {
+    private final Iterator<EpochTimeRange> occurrences;
+    private EpochTimeRange current;
+
+    RecurrenceCursor(Iterator<EpochTimeRange> occurrences) {
+      this.occurrences = occurrences;
+      advance();
+    }
+
+    @Override
+    boolean hasInterval() {
+      return current != null;
+    }
+
+    @Override
+    long start() {
+      return current.start();
+    }
+
+    @Override
+    long end() {
+      return current.end();
+    }
+
+    @Override
+    void advance() {
+      current = occurrences.hasNext() ? occurrences.next() : null;
+    }
+  }
+}
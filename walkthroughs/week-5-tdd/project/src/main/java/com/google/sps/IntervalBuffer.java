@@ -0,0 +1,250 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of time intervals stored as primitives, so that working with many ranges does
+ * not need a {@code TimeRange} object (and a boxed list entry) for each of them. Every interval is
+ * packed into a single {@code long} with the start in the high 32 bits and the end in the low 32
+ * bits. Because starts and ends are never negative, sorting the packed values orders the intervals
+ * by start and then by end. Like {@code TimeRange}, the end of an interval is exclusive.
+ */
+final class IntervalBuffer {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private long[] intervals;
+  private int size;
+
+  IntervalBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  IntervalBuffer(int capacity) {
+    this.intervals = new long[Math.max(capacity, 1)];
+  }
+
+  /**
+   * Packs an interval into a single {@code long}.
+   */
+  static long pack(int start, int end) {
+    return ((long) start << 32) | (end & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Returns the start of a packed interval.
+   */
+  static int start(long interval) {
+    return (int) (interval >>> 32);
+  }
+
+  /**
+   * Returns the exclusive end of a packed interval.
+   */
+  static int end(long interval) {
+    return (int) interval;
+  }
+
+  /**
+   * Adds the interval from {@code start} (inclusive) to {@code end} (exclusive).
+   */
+  void add(int start, int end) {
+    if (size == intervals.length) {
+      intervals = Arrays.copyOf(intervals, size * 2);
+    }
+    intervals[size++] = pack(start, end);
+  }
+
+  /**
+   * Adds every interval of {@code packedIntervals}, which must hold values made by {@code pack}.
+   */
+  void addAll(long[] packedIntervals) {
+    if (size + packedIntervals.length > intervals.length) {
+      intervals = Arrays.copyOf(intervals, Math.max(size * 2, size + packedIntervals.length));
+    }
+    System.arraycopy(packedIntervals, 0, intervals, size, packedIntervals.length);
+    size += packedIntervals.length;
+  }
+
+  /**
+   * Adds an interval that was made by {@code pack}.
+   */
+  void addPacked(long packedInterval) {
+    if (size == intervals.length) {
+      intervals = Arrays.copyOf(intervals, size * 2);
+    }
+    intervals[size++] = packedInterval;
+  }
+
+  /**
+   * Returns the number of intervals in the buffer.
+   */
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the start of the interval at {@code index}.
+   */
+  int start(int index) {
+    return start(intervals[index]);
+  }
+
+  /**
+   * Returns the exclusive end of the interval at {@code index}.
+   */
+  int end(int index) {
+    return end(intervals[index]);
+  }
+
+  /**
+   * Returns the packed interval at {@code index}.
+   */
+  long get(int index) {
+    return intervals[index];
+  }
+
+  /**
+   * Replaces the interval at {@code index} with a packed interval.
+   */
+  void set(int index, long packedInterval) {
+    intervals[index] = packedInterval;
+  }
+
+  /**
+   * Drops every interval at or after {@code newSize}.
+   */
+  void truncate(int newSize) {
+    size = Math.min(size, newSize);
+  }
+
+  /**
+   * Returns a copy of the packed intervals in the buffer.
+   */
+  long[] toArray() {
+    return Arrays.copyOf(intervals, size);
+  }
+
+  /**
+   * Removes every interval but keeps the allocated storage so the buffer can be reused.
+   */
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * Sorts the intervals by start and then by end.
+   */
+  void sort() {
+    Arrays.sort(intervals, 0, size);
+  }
+
+  /**
+   * Rearranges the intervals into a binary min-heap in linear time, so that {@code pollFirst} can
+   * take them out in sorted order one at a time. This is cheaper than sorting when only the first
+   * few intervals are needed.
+   */
+  void heapify() {
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(i);
+    }
+  }
+
+  /**
+   * Removes and returns the smallest packed interval. The buffer must be a heap made by
+   * {@code heapify} and must not be empty.
+   */
+  long pollFirst() {
+    long first = intervals[0];
+    intervals[0] = intervals[--size];
+    siftDown(0);
+    return first;
+  }
+
+  // Move the interval at {@code index} down the heap until neither child is smaller
+  private void siftDown(int index) {
+    long interval = intervals[index];
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && intervals[child + 1] < intervals[child]) {
+        child++;
+      }
+      if (interval <= intervals[child]) {
+        break;
+      }
+      intervals[index] = intervals[child];
+      index = child;
+    }
+    intervals[index] = interval;
+  }
+
+  /**
+   * Returns the merged union of {@code a} and {@code b}, which must both be sorted and merged. This
+   * takes time linear in the size of the two buffers.
+   */
+  static IntervalBuffer union(IntervalBuffer a, IntervalBuffer b) {
+    IntervalBuffer result = new IntervalBuffer(a.size + b.size);
+    int i = 0;
+    int j = 0;
+    while (i < a.size && j < b.size) {
+      if (a.intervals[i] <= b.intervals[j]) {
+        result.intervals[result.size++] = a.intervals[i++];
+      } else {
+        result.intervals[result.size++] = b.intervals[j++];
+      }
+    }
+    while (i < a.size) {
+      result.intervals[result.size++] = a.intervals[i++];
+    }
+    while (j < b.size) {
+      result.intervals[result.size++] = b.intervals[j++];
+    }
+    result.merge();
+    return result;
+  }
+
+  /**
+   * Merges overlapping and touching intervals in place. The buffer must be sorted first. Afterwards
+   * the intervals are disjoint and still sorted.
+   */
+  void merge() {
+    if (size == 0) {
+      return;
+    }
+
+    int merged = 0;
+    int currentStart = start(0);
+    int currentEnd = end(0);
+    for (int i = 1; i < size; i++) {
+      int nextStart = start(i);
+      int nextEnd = end(i);
+      if (nextStart <= currentEnd) {
+        currentEnd = Math.max(currentEnd, nextEnd);
+      } else {
+        intervals[merged++] = pack(currentStart, currentEnd);
+        currentStart = nextStart;
+        currentEnd = nextEnd;
+      }
+    }
+    intervals[merged++] = pack(currentStart, currentEnd);
+    size = merged;
+  }
+}
@@ -0,0 +1,226 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads meeting requests and writes time ranges as JSON without reflection. The adapters stream
+ * straight between the JSON tokens and the objects, so no intermediate tree or reflective field
+ * lookups are needed. The JSON is the same as what a plain {@code Gson} reads and writes.
+ *
+ * <p>Everything here is stateless, so the shared adapters and {@code GSON} can be used from any
+ * number of threads.
+ */
+public final class MeetingJson {
+  private static final TypeAdapter<MeetingRequest> MEETING_REQUEST_ADAPTER =
+      new MeetingRequestAdapter();
+  private static final TypeAdapter<TimeRange> TIME_RANGE_ADAPTER = new TimeRangeAdapter();
+
+  /**
+   * A {@code Gson} that uses the streaming adapters for {@code MeetingRequest} and
+   * {@code TimeRange}, including inside lists and other objects.
+   */
+  public static final Gson GSON = new GsonBuilder()
+      .registerTypeAdapter(MeetingRequest.class, MEETING_REQUEST_ADAPTER)
+      .registerTypeAdapter(TimeRange.class, TIME_RANGE_ADAPTER)
+      .create();
+
+  private MeetingJson() {
+    // All members are static.
+  }
+
+  /**
+   * Reads one meeting request from {@code reader}.
+   *
+   * @throws JsonParseException if the input is empty or isn't a valid meeting request.
+   */
+  public static MeetingRequest readMeetingRequest(Reader reader) throws IOException {
+    JsonReader jsonReader = new JsonReader(reader);
+    try {
+      if (jsonReader.peek() == JsonToken.END_DOCUMENT) {
+        throw new JsonParseException("Expected a meeting request but the input was empty");
+      }
+      MeetingRequest request = MEETING_REQUEST_ADAPTER.read(jsonReader);
+      if (request == null) {
+        throw new JsonParseException("Expected a meeting request but got null");
+      }
+      return request;
+    } catch (IllegalStateException | NumberFormatException | MalformedJsonException
+        | EOFException e) {
+      // JsonReader reports bad input in all of these ways, so report them the same way
+      throw new JsonParseException(e);
+    }
+  }
+
+  /**
+   * Writes {@code ranges} to {@code writer} as a JSON array.
+   */
+  public static void writeTimeRanges(Collection<TimeRange> ranges, Writer writer)
+      throws IOException {
+    JsonWriter jsonWriter = new JsonWriter(writer);
+    jsonWriter.beginArray();
+    for (TimeRange range : ranges) {
+      TIME_RANGE_ADAPTER.write(jsonWriter, range);
+    }
+    jsonWriter.endArray();
+    jsonWriter.flush();
+  }
+
+  /**
+   * Reads {@code {"attendees": [...], "optional_attendees": [...], "duration": 60}}. Fields it
+   * doesn't know are skipped and missing fields are left empty. Like plain {@code Gson}, the
+   * duration may also be given as a string.
+   */
+  static final class MeetingRequestAdapter extends TypeAdapter<MeetingRequest> {
+    @Override
+    public MeetingRequest read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+
+      List<String> attendees = new ArrayList<>();
+      List<String> optionalAttendees = new ArrayList<>();
+      long duration = 0;
+
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "attendees":
+            readStrings(in, attendees);
+            break;
+          case "optional_attendees":
+            readStrings(in, optionalAttendees);
+            break;
+          case "duration":
+            if (in.peek() == JsonToken.NULL) {
+              in.nextNull();
+            } else {
+              duration = in.nextLong();
+            }
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+
+      MeetingRequest request = new MeetingRequest(attendees, duration);
+      for (String attendee : optionalAttendees) {
+        request.addOptionalAttendee(attendee);
+      }
+      return request;
+    }
+
+    @Override
+    public void write(JsonWriter out, MeetingRequest request) throws IOException {
+      if (request == null) {
+        out.nullValue();
+        return;
+      }
+
+      out.beginObject();
+      out.name("attendees");
+      writeStrings(out, request.getAttendees());
+      out.name("optional_attendees");
+      writeStrings(out, request.getOptionalAttendees());
+      out.name("duration").value(request.getDuration());
+      out.endObject();
+    }
+
+    // Add every string of a JSON array to {@code strings}. A null array adds nothing.
+    private static void readStrings(JsonReader in, List<String> strings) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return;
+      }
+
+      in.beginArray();
+      while (in.hasNext()) {
+        strings.add(in.nextString());
+      }
+      in.endArray();
+    }
+
+    private static void writeStrings(JsonWriter out, Collection<String> strings)
+        throws IOException {
+      out.beginArray();
+      for (String string : strings) {
+        out.value(string);
+      }
+      out.endArray();
+    }
+  }
+
+  /**
+   * Writes {@code {"start": 480, "duration": 30}}, the same fields {@code Gson} finds by
+   * reflection.
+   */
+  static final class TimeRangeAdapter extends TypeAdapter<TimeRange> {
+    @Override
+    public TimeRange read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+
+      int start = 0;
+      int duration = 0;
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "start":
+            start = in.nextInt();
+            break;
+          case "duration":
+            duration = in.nextInt();
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return TimeRange.fromStartDuration(start, duration);
+    }
+
+    @Override
+    public void write(JsonWriter out, TimeRange range) throws IOException {
+      if (range == null) {
+        out.nullValue();
+        return;
+      }
+
+      out.beginObject();
+      out.name("start").value(range.start());
+      out.name("duration").value(range.duration());
+      out.endObject();
+    }
+  }
+}
@@ -0,0 +1,246 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded cache of meeting query answers in front of {@code FindMeetingQuery}. Requests with the
+ * same attendees, optional attendees and duration share an entry, no matter the order the attendees
+ * were given in. When the cache is full, the least recently used entry is evicted.
+ *
+ * <p>The cache listens to its {@code Calendar}. When an event is added or removed, only the entries
+ * that name one of that event's attendees are dropped. Everything else stays cached.
+ */
+public final class MeetingQueryCache implements CalendarListener {
+  private final Calendar calendar;
+  private final FindMeetingQuery findMeetingQuery;
+  private final int maxEntries;
+
+  // The cached answers, in least recently used order. Guarded by {@code this}.
+  private final LinkedHashMap<Key, List<TimeRange>> entries;
+
+  // The keys of the entries that name each attendee. Guarded by {@code this}. This goes by name
+  // rather than by id, because a request may name someone who had no events, and so no id, when
+  // its answer was cached.
+  private final Map<String, Set<Key>> keysByAttendee = new HashMap<>();
+
+  // Counts the invalidations so that answers computed while an event changed aren't cached.
+  private long invalidations;
+
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  /**
+   * Creates a cache of the answers for {@code calendar} that holds at most {@code maxEntries}
+   * answers.
+   */
+  public MeetingQueryCache(Calendar calendar, int maxEntries) {
+    this(calendar, new FindMeetingQuery(), maxEntries);
+  }
+
+  /**
+   * Creates a cache of the answers for {@code calendar} that uses {@code findMeetingQuery} to
+   * answer the requests that aren't cached.
+   */
+  public MeetingQueryCache(Calendar calendar, FindMeetingQuery findMeetingQuery, int maxEntries) {
+    if (calendar == null) {
+      throw new IllegalArgumentException("calendar cannot be null");
+    }
+
+    if (findMeetingQuery == null) {
+      throw new IllegalArgumentException("findMeetingQuery cannot be null");
+    }
+
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("maxEntries must be at least 1");
+    }
+
+    this.calendar = calendar;
+    this.findMeetingQuery = findMeetingQuery;
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<Key, List<TimeRange>>(16, 0.75f, /* accessOrder= */ true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, List<TimeRange>> eldest) {
+        if (size() <= MeetingQueryCache.this.maxEntries) {
+          return false;
+        }
+        evictionCount++;
+        unlinkAttendees(eldest.getKey());
+        return true;
+      }
+    };
+    calendar.addListener(this);
+  }
+
+  /**
+   * Returns the possible meeting times for {@code request}, from the cache if possible. The
+   * returned collection is read-only.
+   */
+  public Collection<TimeRange> query(MeetingRequest request) {
+    Key key = new Key(request);
+    long invalidationsBefore;
+    synchronized (this) {
+      List<TimeRange> cached = entries.get(key);
+      if (cached != null) {
+        hitCount++;
+        return cached;
+      }
+      missCount++;
+      invalidationsBefore = invalidations;
+    }
+
+    // Answer the request without holding the lock, since the calendar calls back into this cache
+    // while it is locked.
+    List<TimeRange> answer = Collections.unmodifiableList(
+        new ArrayList<>(findMeetingQuery.query(calendar, request)));
+
+    synchronized (this) {
+      // If any event changed while the answer was computed, it may already be out of date.
+      if (invalidations == invalidationsBefore && !entries.containsKey(key)) {
+        entries.put(key, answer);
+        linkAttendees(key);
+      }
+    }
+    return answer;
+  }
+
+  @Override
+  public synchronized void eventChanged(Event event) {
+    invalidations++;
+
+    for (String attendee : event.getAttendees()) {
+      Set<Key> keys = keysByAttendee.remove(attendee);
+      if (keys == null) {
+        continue;
+      }
+      for (Key key : keys) {
+        if (entries.remove(key) != null) {
+          unlinkAttendees(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes every cached answer.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    keysByAttendee.clear();
+  }
+
+  /**
+   * Returns the number of cached answers.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns how many queries were answered from the cache.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns how many queries had to be answered by {@code FindMeetingQuery}.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns how many answers were dropped to make room for newer ones. Answers that are dropped
+   * because an event changed are not counted.
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  private void linkAttendees(Key key) {
+    for (String name : key.names) {
+      keysByAttendee.computeIfAbsent(name, unused -> new HashSet<>()).add(key);
+    }
+  }
+
+  private void unlinkAttendees(Key key) {
+    for (String name : key.names) {
+      Set<Key> keys = keysByAttendee.get(name);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByAttendee.remove(name);
+        }
+      }
+    }
+  }
+
+  /**
+   * The canonical form of a {@code MeetingRequest}: the sorted ids of its attendees and optional
+   * attendees, and its duration. The names of the attendees are kept for invalidation but are not
+   * part of the key.
+   */
+  private static final class Key {
+    private final String[] names;
+    private final int[] attendeeIds;
+    private final int[] optionalAttendeeIds;
+    private final long duration;
+    private final int hashCode;
+
+    Key(MeetingRequest request) {
+      List<String> names = new ArrayList<>(request.getAttendees());
+      names.addAll(request.getOptionalAttendees());
+      this.names = names.toArray(new String[0]);
+      this.attendeeIds = toSortedArray(request.getAttendeeIds());
+      this.optionalAttendeeIds = toSortedArray(request.getOptionalAttendeeIds());
+      this.duration = request.getDuration();
+      this.hashCode = Arrays.hashCode(attendeeIds) * 961
+          + Arrays.hashCode(optionalAttendeeIds) * 31 + Long.hashCode(duration);
+    }
+
+    private static int[] toSortedArray(BitSet ids) {
+      // A bit set iterates in increasing order, so the array is already sorted.
+      return ids.stream().toArray();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return duration == key.duration && Arrays.equals(attendeeIds, key.attendeeIds)
+          && Arrays.equals(optionalAttendeeIds, key.optionalAttendeeIds);
+    }
+  }
+}
@@ -14,12 +14,16 @@
 
 package com.google.sps;
 
+import com.google.gson.annotations.JsonAdapter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 
+@JsonAdapter(MeetingJson.MeetingRequestAdapter.class)
 public final class MeetingRequest {
   // All the people that should be attending this new meeting. Use a set to avoid duplicates.
   private final Collection<String> attendees = new HashSet<>();
@@ -30,9 +34,24 @@ public final class MeetingRequest {
   // The duration of the meeting in minutes.
   private final long duration;
 
+  // The ids of the attendees and optional attendees, looked up once when they are added so that
+  // queries on several threads only ever read them. Names are looked up but never interned, because
+  // they come from clients and the dictionary never forgets a name. Gson reads requests through
+  // {@code MeetingJson.MeetingRequestAdapter}, so requests from JSON go through the constructor too.
+  private final BitSet attendeeIds = new BitSet();
+  private final BitSet optionalAttendeeIds = new BitSet();
+
+  // The names that no event had mentioned yet when they were added, so they had no id. They are
+  // looked up again on every call, since an event may have mentioned them since.
+  private final List<String> unknownAttendees = new ArrayList<>();
+  private final List<String> unknownOptionalAttendees = new ArrayList<>();
+
   public MeetingRequest(Collection<String> attendees, long duration) {
     this.duration = duration;
     this.attendees.addAll(attendees);
+    for (String attendee : this.attendees) {
+      addId(attendee, attendeeIds, unknownAttendees);
+    }
   }
 
   /**
@@ -55,7 +74,50 @@ public final class MeetingRequest {
   public void addOptionalAttendee(String attendee) {
     if (!attendees.contains(attendee)) {
       optional_attendees.add(attendee);
+      addId(attendee, optionalAttendeeIds, unknownOptionalAttendees);
+    }
+  }
+
+  /**
+   * Returns the ids of the required attendees in the shared {@code AttendeeDictionary}. The
+   * returned set must not be modified.
+   */
+  BitSet getAttendeeIds() {
+    return withNewIds(attendeeIds, unknownAttendees);
+  }
+
+  /**
+   * Returns the ids of the optional attendees in the shared {@code AttendeeDictionary}. The
+   * returned set must not be modified.
+   */
+  BitSet getOptionalAttendeeIds() {
+    return withNewIds(optionalAttendeeIds, unknownOptionalAttendees);
+  }
+
+  // Set the id of {@code name} in {@code ids}, or remember the name if it doesn't have one yet
+  private static void addId(String name, BitSet ids, List<String> unknownNames) {
+    int id = AttendeeDictionary.getInstance().getId(name);
+    if (id >= 0) {
+      ids.set(id);
+    } else {
+      unknownNames.add(name);
+    }
+  }
+
+  // Return {@code ids} together with the ids that names in {@code unknownNames} have been given
+  // since. {@code ids} itself is never modified, so requests can be shared between threads.
+  private static BitSet withNewIds(BitSet ids, List<String> unknownNames) {
+    BitSet result = ids;
+    for (String name : unknownNames) {
+      int id = AttendeeDictionary.getInstance().getId(name);
+      if (id >= 0) {
+        if (result == ids) {
+          result = (BitSet) ids.clone();
+        }
+        result.set(id);
+      }
     }
+    return result;
   }
 
   /**
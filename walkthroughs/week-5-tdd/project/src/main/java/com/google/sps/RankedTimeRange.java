@@ -0,0 +1,67 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * A possible meeting time together with how many of the optional attendees are free for all of it.
+ * Ranked time ranges are read-only.
+ */
+public final class RankedTimeRange {
+  private final TimeRange range;
+  private final int availableOptionalAttendees;
+
+  public RankedTimeRange(TimeRange range, int availableOptionalAttendees) {
+    if (range == null) {
+      throw new IllegalArgumentException("range cannot be null");
+    }
+
+    this.range = range;
+    this.availableOptionalAttendees = availableOptionalAttendees;
+  }
+
+  /**
+   * Returns the time range in which every mandatory attendee is free.
+   */
+  public TimeRange getRange() {
+    return range;
+  }
+
+  /**
+   * Returns the number of optional attendees who are free for the whole range.
+   */
+  public int getAvailableOptionalAttendees() {
+    return availableOptionalAttendees;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof RankedTimeRange)) {
+      return false;
+    }
+    RankedTimeRange ranked = (RankedTimeRange) other;
+    return range.equals(ranked.range)
+        && availableOptionalAttendees == ranked.availableOptionalAttendees;
+  }
+
+  @Override
+  public int hashCode() {
+    return range.hashCode() * 31 + availableOptionalAttendees;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s with %d optional attendees", range, availableOptionalAttendees);
+  }
+}
@@ -0,0 +1,282 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * When a recurring event happens: a local start time and duration that repeat every day, every week
+ * or every weekday from a first day, like the {@code FREQ=DAILY}, {@code FREQ=WEEKLY} and
+ * {@code BYDAY=MO,TU,WE,TH,FR} rules of iCalendar. A recurrence can end on a last day and can skip
+ * single days. Its occurrences are never stored; {@code occurrences} works them out one at a time
+ * inside the window that is asked for.
+ *
+ * <p>Each occurrence starts at the same local time in the recurrence's zone, so it follows daylight
+ * saving time. Recurrences are read-only.
+ */
+public final class Recurrence {
+  /**
+   * How often a recurrence repeats.
+   */
+  public enum Frequency {
+    /** Every day. */
+    DAILY,
+    /** Every week, on the same day of the week as the first day. */
+    WEEKLY,
+    /** Every Monday to Friday. */
+    WEEKDAYS
+  }
+
+  private static final long MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  private final Frequency frequency;
+  private final LocalDate firstDay;
+  // The last day that can have an occurrence, or null if the recurrence never ends.
+  private final LocalDate lastDay;
+  private final LocalTime startTime;
+  private final long duration;
+  private final ZoneId zone;
+  private final Set<LocalDate> exceptions;
+
+  private Recurrence(Frequency frequency, LocalDate firstDay, LocalDate lastDay,
+      LocalTime startTime, long duration, ZoneId zone, Set<LocalDate> exceptions) {
+    this.frequency = frequency;
+    this.firstDay = firstDay;
+    this.lastDay = lastDay;
+    this.startTime = startTime;
+    this.duration = duration;
+    this.zone = zone;
+    this.exceptions = exceptions;
+  }
+
+  /**
+   * Creates a recurrence that starts at {@code startTime} in {@code zone} and lasts
+   * {@code duration} minutes, repeating with {@code frequency} from {@code firstDay} on. For
+   * weekday recurrences, {@code firstDay} is the first day that occurrences can fall on.
+   */
+  public static Recurrence of(Frequency frequency, LocalDate firstDay, LocalTime startTime,
+      long duration, ZoneId zone) {
+    if (frequency == null || firstDay == null || startTime == null || zone == null) {
+      throw new IllegalArgumentException("frequency, firstDay, startTime and zone cannot be null");
+    }
+
+    if (duration <= 0) {
+      throw new IllegalArgumentException("duration must be positive");
+    }
+
+    return new Recurrence(
+        frequency, firstDay, null, startTime, duration, zone, Collections.emptySet());
+  }
+
+  /**
+   * Returns a copy of this recurrence that has no occurrences after {@code lastDay}.
+   */
+  public Recurrence until(LocalDate lastDay) {
+    if (lastDay == null) {
+      throw new IllegalArgumentException("lastDay cannot be null");
+    }
+
+    return new Recurrence(frequency, firstDay, lastDay, startTime, duration, zone, exceptions);
+  }
+
+  /**
+   * Returns a copy of this recurrence that skips the occurrence on {@code day}.
+   */
+  public Recurrence except(LocalDate day) {
+    if (day == null) {
+      throw new IllegalArgumentException("day cannot be null");
+    }
+
+    Set<LocalDate> newExceptions = new HashSet<>(exceptions);
+    newExceptions.add(day);
+    return new Recurrence(frequency, firstDay, lastDay, startTime, duration, zone,
+        Collections.unmodifiableSet(newExceptions));
+  }
+
+  public Frequency getFrequency() {
+    return frequency;
+  }
+
+  public LocalDate getFirstDay() {
+    return firstDay;
+  }
+
+  /**
+   * Returns the last day that can have an occurrence, or null if the recurrence never ends.
+   */
+  public LocalDate getLastDay() {
+    return lastDay;
+  }
+
+  public LocalTime getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Returns the length of each occurrence in minutes.
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  /**
+   * Returns a read-only set of the days that are skipped.
+   */
+  public Set<LocalDate> getExceptions() {
+    return exceptions;
+  }
+
+  /**
+   * Checks if the recurrence has an occurrence that starts on {@code day}.
+   */
+  public boolean occursOn(LocalDate day) {
+    if (day.isBefore(firstDay) || (lastDay != null && day.isAfter(lastDay))
+        || exceptions.contains(day)) {
+      return false;
+    }
+
+    switch (frequency) {
+      case WEEKLY:
+        return day.getDayOfWeek() == firstDay.getDayOfWeek();
+      case WEEKDAYS:
+        return day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Returns the occurrence that starts on {@code day}. The recurrence doesn't have to occur on that
+   * day.
+   */
+  EpochTimeRange occurrenceOn(LocalDate day) {
+    ZonedDateTime start = ZonedDateTime.of(day, startTime, zone);
+    return EpochTimeRange.fromStartDuration(
+        EpochTimeRange.toEpochMinute(start.toInstant()), duration);
+  }
+
+  /**
+   * Returns the occurrences that overlap {@code window}, in start order. Nothing is worked out
+   * ahead of time; every call to {@code next} finds the next day the recurrence falls on.
+   */
+  public Iterator<EpochTimeRange> occurrences(EpochTimeRange window) {
+    if (window == null) {
+      throw new IllegalArgumentException("window cannot be null");
+    }
+
+    return new OccurrenceIterator(window);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof Recurrence)) {
+      return false;
+    }
+    Recurrence recurrence = (Recurrence) other;
+    return frequency == recurrence.frequency && firstDay.equals(recurrence.firstDay)
+        && (lastDay == null ? recurrence.lastDay == null : lastDay.equals(recurrence.lastDay))
+        && startTime.equals(recurrence.startTime) && duration == recurrence.duration
+        && zone.equals(recurrence.zone) && exceptions.equals(recurrence.exceptions);
+  }
+
+  @Override
+  public int hashCode() {
+    return (frequency.hashCode() * 31 + firstDay.hashCode()) * 31 + startTime.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s at %s for %d minutes from %s%s", frequency, startTime, duration,
+        firstDay, lastDay == null ? "" : " until " + lastDay);
+  }
+
+  /**
+   * Steps through the days of the recurrence, starting early enough to catch an occurrence that
+   * began before the window and is still going on.
+   */
+  private final class OccurrenceIterator implements Iterator<EpochTimeRange> {
+    private final EpochTimeRange window;
+    // No occurrence that starts after this day can overlap the window.
+    private final LocalDate lastWindowDay;
+    private final int step;
+    private LocalDate day;
+    // The next occurrence to return, or null once there are none left.
+    private EpochTimeRange next;
+
+    OccurrenceIterator(EpochTimeRange window) {
+      this.window = window;
+      this.lastWindowDay = window.endIn(zone).toLocalDate();
+      this.step = frequency == Frequency.WEEKLY ? 7 : 1;
+
+      // An occurrence can't start more than its duration, plus a day for time zone offsets, before
+      // the window and still overlap it
+      LocalDate from = window.startIn(zone).toLocalDate()
+          .minusDays(duration / MINUTES_PER_DAY + 1);
+      LocalDate first = from.isBefore(firstDay) ? firstDay : from;
+      this.day = frequency == Frequency.WEEKLY
+          ? first.with(TemporalAdjusters.nextOrSame(firstDay.getDayOfWeek()))
+          : first;
+      findNext();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public EpochTimeRange next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      EpochTimeRange occurrence = next;
+      day = day.plusDays(step);
+      findNext();
+      return occurrence;
+    }
+
+    // Move {@code day} to the next day with an occurrence that overlaps the window
+    private void findNext() {
+      next = null;
+      while (!day.isAfter(lastWindowDay) && (lastDay == null || !day.isAfter(lastDay))) {
+        if (occursOn(day)) {
+          EpochTimeRange occurrence = occurrenceOn(day);
+          if (occurrence.start() >= window.end()) {
+            return;
+          }
+          if (occurrence.end() > window.start()) {
+            next = occurrence;
+            return;
+          }
+        }
+        day = day.plusDays(step);
+      }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A fixed list of events rendered as JSON once and kept as bytes, both plain and gzipped, so that
+ * serving them is a plain copy. The events are rendered in the order they are given, the same JSON
+ * as {@code new Gson().toJson(events)}. Rendered events are read-only and can be shared between
+ * threads.
+ */
+public final class RenderedEvents {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  // The number of bytes of the content hash that go into an ETag.
+  private static final int ETAG_HASH_BYTES = 16;
+
+  private final byte[] json;
+  private final byte[] gzippedJson;
+  private final String eTag;
+  private final String gzippedETag;
+
+  /**
+   * Renders {@code events}.
+   *
+   * @param events The events to render, in the order they should appear. Must be non-null.
+   */
+  public RenderedEvents(Collection<Event> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    this.json = MeetingJson.GSON.toJson(events).getBytes(StandardCharsets.UTF_8);
+    this.gzippedJson = gzip(json);
+
+    // The ETag comes from the content, so it stays the same across restarts. The gzipped bytes
+    // are a different representation and need their own strong ETag.
+    String hash = sha256Hex(json);
+    this.eTag = "\"" + hash + "\"";
+    this.gzippedETag = "\"" + hash + "-gzip\"";
+  }
+
+  /**
+   * Returns the quoted strong ETag of the plain or gzipped JSON.
+   */
+  public String getETag(boolean gzipped) {
+    return gzipped ? gzippedETag : eTag;
+  }
+
+  /**
+   * Returns the number of bytes of the plain or gzipped JSON.
+   */
+  public int getLength(boolean gzipped) {
+    return gzipped ? gzippedJson.length : json.length;
+  }
+
+  /**
+   * Writes the plain or gzipped JSON, encoded as UTF-8, to {@code out}.
+   */
+  public void writeTo(OutputStream out, boolean gzipped) throws IOException {
+    out.write(gzipped ? gzippedJson : json);
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 32);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      // Writing to memory doesn't fail
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static String sha256Hex(byte[] bytes) {
+    byte[] hash;
+    try {
+      hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+
+    char[] hex = new char[ETAG_HASH_BYTES * 2];
+    for (int i = 0; i < ETAG_HASH_BYTES; i++) {
+      hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+      hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+    }
+    return new String(hex);
+  }
+}
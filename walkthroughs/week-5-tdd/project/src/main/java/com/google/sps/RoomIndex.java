@@ -0,0 +1,129 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index from each room to the times it is booked. Rooms are kept in order of capacity, so the
+ * rooms that seat a group are found with a binary search, and each room's bookings are sorted and
+ * merged once, so checking a room against the attendees' free times is a single linear pass.
+ * Indexes are read-only and can be shared between threads.
+ */
+public final class RoomIndex {
+  private static final Comparator<Room> ORDER_BY_CAPACITY =
+      Comparator.comparingInt(Room::getCapacity).thenComparing(Room::getName);
+
+  // The rooms, sorted by capacity and then by name.
+  private final Room[] rooms;
+
+  // The packed, sorted and merged bookings of each room, in the same order as {@code rooms}.
+  private final long[][] busyIntervals;
+
+  /**
+   * Creates an index of {@code rooms} and their bookings in {@code events}.
+   *
+   * @param rooms The rooms to index. Must be non-null and have different names.
+   * @param events The events that may book the rooms. Must be non-null.
+   */
+  public RoomIndex(Collection<Room> rooms, Collection<Event> events) {
+    if (rooms == null) {
+      throw new IllegalArgumentException("rooms cannot be null");
+    }
+
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    List<Room> sortedRooms = new ArrayList<>(rooms);
+    sortedRooms.sort(ORDER_BY_CAPACITY);
+    this.rooms = sortedRooms.toArray(new Room[0]);
+
+    Map<String, IntervalBuffer> buffersByName = new HashMap<>();
+    for (Room room : this.rooms) {
+      if (buffersByName.put(room.getName(), new IntervalBuffer()) != null) {
+        throw new IllegalArgumentException("Two rooms are named " + room.getName());
+      }
+    }
+
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+
+      // An empty range can't keep a room busy
+      if (when.duration() <= 0) {
+        continue;
+      }
+      for (String attendee : event.getAttendees()) {
+        IntervalBuffer buffer = buffersByName.get(attendee);
+        if (buffer != null) {
+          buffer.add(when.start(), when.end());
+        }
+      }
+    }
+
+    this.busyIntervals = new long[this.rooms.length][];
+    for (int i = 0; i < this.rooms.length; i++) {
+      IntervalBuffer buffer = buffersByName.get(this.rooms[i].getName());
+      buffer.sort();
+      buffer.merge();
+      busyIntervals[i] = buffer.toArray();
+    }
+  }
+
+  /**
+   * Returns the number of rooms in the index.
+   */
+  public int size() {
+    return rooms.length;
+  }
+
+  /**
+   * Returns the room at {@code position}. Rooms are ordered by capacity and then by name.
+   */
+  public Room getRoom(int position) {
+    return rooms[position];
+  }
+
+  /**
+   * Returns the position of the first room that seats at least {@code seats} people, or
+   * {@code size()} if no room is big enough. Every room after it is at least as big.
+   */
+  int firstSeating(int seats) {
+    int low = 0;
+    int high = rooms.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (rooms[middle].getCapacity() < seats) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the packed, sorted and disjoint bookings of the room at {@code position}. The returned
+   * array must not be modified.
+   */
+  long[] getBusyIntervals(int position) {
+    return busyIntervals[position];
+  }
+}
@@ -0,0 +1,73 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * A possible meeting time together with a room that is free for all of it. Room time ranges are
+ * read-only.
+ */
+public final class RoomTimeRange {
+  private final TimeRange range;
+  private final Room room;
+
+  public RoomTimeRange(TimeRange range, Room room) {
+    if (range == null) {
+      throw new IllegalArgumentException("range cannot be null");
+    }
+
+    if (room == null) {
+      throw new IllegalArgumentException("room cannot be null");
+    }
+
+    this.range = range;
+    this.room = room;
+  }
+
+  /**
+   * Returns the time range in which the room, every mandatory attendee and every optional attendee
+   * whose events count are free. As in {@code FindMeetingQuery.query}, an optional attendee's
+   * events only count if they are at least as long as the meeting and don't last the whole day.
+   * The room seats every attendee and optional attendee.
+   */
+  public TimeRange getRange() {
+    return range;
+  }
+
+  /**
+   * Returns the room that is free for the whole range.
+   */
+  public Room getRoom() {
+    return room;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof RoomTimeRange)) {
+      return false;
+    }
+    RoomTimeRange roomRange = (RoomTimeRange) other;
+    return range.equals(roomRange.range) && room.equals(roomRange.room);
+  }
+
+  @Override
+  public int hashCode() {
+    return range.hashCode() * 31 + room.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s in %s", range, room);
+  }
+}
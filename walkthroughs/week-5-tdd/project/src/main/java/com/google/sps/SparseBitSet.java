@@ -0,0 +1,69 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.BitSet;
+
+/**
+ * A read-only bit set that only stores its non-zero 64-bit words. An event usually has a handful
+ * of attendees whose ids can be far apart, so a regular {@code BitSet} would spend most of its
+ * words on zeros. Intersecting with a dense set still works a word at a time.
+ */
+final class SparseBitSet {
+  // The index of each non-zero word in a dense bit set, in increasing order.
+  private final int[] wordIndexes;
+
+  // The non-zero words, in the same order as {@code wordIndexes}.
+  private final long[] words;
+
+  SparseBitSet(BitSet bits) {
+    long[] denseWords = bits.toLongArray();
+
+    int count = 0;
+    for (long word : denseWords) {
+      if (word != 0) {
+        count++;
+      }
+    }
+
+    this.wordIndexes = new int[count];
+    this.words = new long[count];
+    int next = 0;
+    for (int i = 0; i < denseWords.length; i++) {
+      if (denseWords[i] != 0) {
+        wordIndexes[next] = i;
+        words[next] = denseWords[i];
+        next++;
+      }
+    }
+  }
+
+  /**
+   * Checks if this set and {@code denseWords} have at least one bit in common. {@code denseWords}
+   * uses the same layout as {@code BitSet.toLongArray()}.
+   */
+  boolean intersects(long[] denseWords) {
+    for (int i = 0; i < words.length; i++) {
+      int wordIndex = wordIndexes[i];
+      if (wordIndex >= denseWords.length) {
+        return false;
+      }
+      if ((words[i] & denseWords[wordIndex]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
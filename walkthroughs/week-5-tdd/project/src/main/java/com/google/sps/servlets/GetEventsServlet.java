@@ -15,8 +15,10 @@
 package com.google.sps.servlets;
 
 import com.google.sps.Events;
-import com.google.gson.Gson;
+import com.google.sps.RenderedEvents;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -24,13 +26,91 @@ import javax.servlet.http.HttpServletResponse;
 
 @WebServlet("/get-events")
 public class GetEventsServlet extends HttpServlet {
+  private RenderedEvents renderedEvents;
+
+  @Override
+  public void init() {
+    // The events never change, so render them once
+    this.renderedEvents = new RenderedEvents(Arrays.asList(Events.events));
+  }
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
-    String jsonResponse = gson.toJson(Events.events);
+    boolean gzipped = acceptsGzip(request.getHeader("Accept-Encoding"));
+    String eTag = renderedEvents.getETag(gzipped);
 
-    // Send the JSON back as the response
+    // Clients may keep the events but have to check that they are still current before using them
+    response.setHeader("ETag", eTag);
+    response.setHeader("Cache-Control", "no-cache");
+    response.setHeader("Vary", "Accept-Encoding");
+
+    if (matchesETag(request.getHeader("If-None-Match"), eTag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    // Send the prebuilt JSON back as the response
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    response.setCharacterEncoding("UTF-8");
+    if (gzipped) {
+      response.setHeader("Content-Encoding", "gzip");
+    }
+    response.setContentLength(renderedEvents.getLength(gzipped));
+    renderedEvents.writeTo(response.getOutputStream(), gzipped);
+  }
+
+  // Checks if an Accept-Encoding header allows gzip, e.g. "gzip, deflate, br". An encoding with
+  // "q=0" is refused, and an explicit gzip entry wins over "*".
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+
+    Boolean wildcard = null;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      String name = parts[0].trim().toLowerCase(Locale.ROOT);
+      if (name.equals("gzip") || name.equals("x-gzip")) {
+        return !isRefused(parts);
+      }
+      if (name.equals("*")) {
+        wildcard = !isRefused(parts);
+      }
+    }
+    return wildcard != null && wildcard;
+  }
+
+  // Checks if the parameters of an encoding give it a quality of zero
+  private static boolean isRefused(String[] parts) {
+    for (int i = 1; i < parts.length; i++) {
+      String parameter = parts[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2)) <= 0;
+        } catch (NumberFormatException e) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  // Checks if an If-None-Match header, e.g. "\"abc\", W/\"def\"", names {@code eTag}
+  private static boolean matchesETag(String ifNoneMatch, String eTag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      // If-None-Match compares ETags weakly, so a weak version of the same tag matches too
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(eTag)) {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -0,0 +1,100 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.CalendarSnapshot;
+import com.google.sps.EventIndex;
+import com.google.sps.Events;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingJson;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Answers a JSON array of meeting requests with a JSON array of the possible times for each. */
+@WebServlet("/query-batch")
+public class QueryBatchServlet extends HttpServlet {
+  private static final Type MEETING_REQUEST_LIST_TYPE =
+      new TypeToken<List<MeetingRequest>>() {}.getType();
+
+  // A snapshot written by CalendarSnapshot.main, answered from without parsing or indexing.
+  private static final String SNAPSHOT_PATH = "/WEB-INF/calendar.snapshot";
+
+  // Exactly one of these is set by init().
+  private CalendarSnapshot snapshot;
+  private EventIndex eventIndex;
+
+  @Override
+  public void init() throws ServletException {
+    String snapshotFile = getServletContext().getRealPath(SNAPSHOT_PATH);
+    if (snapshotFile != null && Files.isRegularFile(Paths.get(snapshotFile))) {
+      // Map the snapshot instead of indexing the events, so a cold start does no work per event.
+      Path path = Paths.get(snapshotFile);
+      try {
+        this.snapshot = CalendarSnapshot.open(path);
+      } catch (IOException e) {
+        throw new ServletException("Could not open " + path, e);
+      }
+      return;
+    }
+
+    // Index the events once so they are shared by every request in every batch.
+    this.eventIndex = new EventIndex(Arrays.asList(Events.events));
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // Convert the JSON to a list of MeetingRequest. The shared Gson streams each request and time
+    // range without reflection.
+    List<MeetingRequest> meetingRequests;
+    try {
+      meetingRequests = MeetingJson.GSON.fromJson(request.getReader(), MEETING_REQUEST_LIST_TYPE);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a list of meeting requests");
+      return;
+    }
+    if (meetingRequests == null || meetingRequests.contains(null)) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a list of meeting requests");
+      return;
+    }
+
+    // Find the possible meeting times for every request.
+    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+    List<Collection<TimeRange>> answers = this.snapshot != null
+        ? findMeetingQuery.queryAll(this.snapshot, meetingRequests)
+        : findMeetingQuery.queryAll(this.eventIndex, meetingRequests);
+
+    // Write the times as JSON straight to the response
+    response.setContentType("application/json");
+    PrintWriter writer = response.getWriter();
+    MeetingJson.GSON.toJson(answers, writer);
+    writer.println();
+  }
+}
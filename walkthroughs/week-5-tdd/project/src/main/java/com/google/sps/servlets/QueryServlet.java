@@ -14,12 +14,15 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.Calendar;
 import com.google.sps.Events;
-import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingJson;
+import com.google.sps.MeetingQueryCache;
 import com.google.sps.MeetingRequest;
 import com.google.sps.TimeRange;
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.Arrays;
 import java.util.Collection;
 import javax.servlet.annotation.WebServlet;
@@ -29,23 +32,38 @@ import javax.servlet.http.HttpServletResponse;
 
 @WebServlet("/query")
 public class QueryServlet extends HttpServlet {
+
+  // The number of answers to keep while users adjust the same request again and again.
+  private static final int MAX_CACHED_QUERIES = 1000;
+
+  private MeetingQueryCache queryCache;
+
   @Override
-  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
+  public void init() {
+    // Keep the events in a calendar so each query only looks at the events of the people it names,
+    // and cache the answers until an event of one of those people changes.
+    Calendar calendar = new Calendar(Arrays.asList(Events.events));
+    this.queryCache = new MeetingQueryCache(calendar, MAX_CACHED_QUERIES);
+  }
 
-    // Convert the JSON to an instance of MeetingRequest.
-    MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // Convert the JSON to an instance of MeetingRequest, token by token.
+    MeetingRequest meetingRequest;
+    try {
+      meetingRequest = MeetingJson.readMeetingRequest(request.getReader());
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a meeting request");
+      return;
+    }
 
     // Find the possible meeting times.
-    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
-    Collection<TimeRange> answer =
-        findMeetingQuery.query(Arrays.asList(Events.events), meetingRequest);
-
-    // Convert the times to JSON
-    String jsonResponse = gson.toJson(answer);
+    Collection<TimeRange> answer = this.queryCache.query(meetingRequest);
 
-    // Send the JSON back as the response
+    // Write the times as JSON straight to the response
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    PrintWriter writer = response.getWriter();
+    MeetingJson.writeTimeRanges(answer, writer);
+    writer.println();
   }
 }
@@ -0,0 +1,73 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AttendeeDictionaryTest {
+  private static final AttendeeDictionary DICTIONARY = AttendeeDictionary.getInstance();
+
+  @Test
+  public void internReturnsTheSameIdForTheSameName() {
+    int id = DICTIONARY.intern("Dictionary Person A");
+
+    Assert.assertEquals(id, DICTIONARY.intern("Dictionary Person A"));
+    Assert.assertEquals(id, DICTIONARY.getId("Dictionary Person A"));
+    Assert.assertEquals("Dictionary Person A", DICTIONARY.getName(id));
+  }
+
+  @Test
+  public void differentNamesGetDifferentIds() {
+    int idA = DICTIONARY.intern("Dictionary Person B");
+    int idB = DICTIONARY.intern("Dictionary Person C");
+
+    Assert.assertNotEquals(idA, idB);
+    Assert.assertTrue(idA < DICTIONARY.size());
+    Assert.assertTrue(idB < DICTIONARY.size());
+  }
+
+  @Test
+  public void unknownNameHasNoId() {
+    Assert.assertEquals(-1, DICTIONARY.getId("Dictionary Person Never Interned"));
+  }
+
+  @Test
+  public void internAllSetsEveryId() {
+    BitSet ids = DICTIONARY.internAll(Arrays.asList("Dictionary Person D", "Dictionary Person E"));
+
+    Assert.assertEquals(2, ids.cardinality());
+    Assert.assertTrue(ids.get(DICTIONARY.getId("Dictionary Person D")));
+    Assert.assertTrue(ids.get(DICTIONARY.getId("Dictionary Person E")));
+  }
+
+  @Test
+  public void eventsShareAttendeesThroughIds() {
+    Event event = new Event("Event 1", TimeRange.WHOLE_DAY,
+        Arrays.asList("Dictionary Person F", "Dictionary Person G"));
+
+    BitSet attending = DICTIONARY.internAll(Arrays.asList("Dictionary Person G"));
+    BitSet notAttending = DICTIONARY.internAll(Arrays.asList("Dictionary Person H"));
+
+    Assert.assertTrue(event.sharesAttendee(attending.toLongArray()));
+    Assert.assertFalse(event.sharesAttendee(notAttending.toLongArray()));
+  }
+}
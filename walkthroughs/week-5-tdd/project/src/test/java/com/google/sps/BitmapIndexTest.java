@@ -0,0 +1,162 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BitmapIndexTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_60_MINUTES = 60;
+
+  private FindMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new FindMeetingQuery();
+  }
+
+  @Test
+  public void setRangeAcrossWordBoundaries() {
+    long[] minutes = new long[BitmapIndex.WORDS_PER_DAY];
+
+    BitmapIndex.setRange(minutes, 60, 200);
+
+    for (int minute = 0; minute < TimeRange.WHOLE_DAY.end(); minute++) {
+      boolean busy = (minutes[minute >>> 6] & (1L << minute)) != 0;
+      Assert.assertEquals("minute " + minute, minute >= 60 && minute < 200, busy);
+    }
+  }
+
+  @Test
+  public void setRangeWithinOneWordAndOnBoundaries() {
+    long[] minutes = new long[BitmapIndex.WORDS_PER_DAY];
+
+    BitmapIndex.setRange(minutes, 3, 5);
+    BitmapIndex.setRange(minutes, 64, 128);
+    BitmapIndex.setRange(minutes, 1400, TimeRange.WHOLE_DAY.end());
+
+    Assert.assertEquals(0b11000L, minutes[0]);
+    Assert.assertEquals(-1L, minutes[1]);
+    Assert.assertEquals(0L, minutes[2]);
+    Assert.assertEquals(1400, BitmapIndex.nextBusyMinute(minutes, 128, 1440));
+    Assert.assertEquals(1440, BitmapIndex.nextFreeMinute(minutes, 1400, 1440));
+  }
+
+  @Test
+  public void findsFreeAndBusyMinutes() {
+    long[] minutes = new long[BitmapIndex.WORDS_PER_DAY];
+    BitmapIndex.setRange(minutes, 0, 100);
+    BitmapIndex.setRange(minutes, 500, 501);
+
+    Assert.assertEquals(100, BitmapIndex.nextFreeMinute(minutes, 0, 1440));
+    Assert.assertEquals(500, BitmapIndex.nextBusyMinute(minutes, 100, 1440));
+    Assert.assertEquals(501, BitmapIndex.nextFreeMinute(minutes, 500, 1440));
+    Assert.assertEquals(1440, BitmapIndex.nextBusyMinute(minutes, 501, 1440));
+  }
+
+  @Test
+  public void optionalAttendeeSkipsShortEvents() {
+    // Events  : |--A--|  |-B-|
+    // Day     : |-------------------|
+    // Options :       |-------------|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    Collection<TimeRange> expected = Arrays.asList(
+        TimeRange.fromStartEnd(TIME_0800AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, query.query(new BitmapIndex(events), request));
+  }
+
+  @Test
+  public void eventsPastEitherEndOfTheDayAreClamped() {
+    // Events  :|--A--|               |--A--|
+    //           |-B-|              |--B--|
+    // Day     : |-------------------|
+    // Options :     |-------------|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(-30, 90), Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(1400, 100), Arrays.asList(PERSON_A)),
+        new Event("Event 3", TimeRange.fromStartDuration(-10, 40), Arrays.asList(PERSON_B)),
+        new Event("Event 4", TimeRange.fromStartDuration(1380, 120), Arrays.asList(PERSON_B)));
+    BitmapIndex index = new BitmapIndex(events);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    Collection<TimeRange> expected = Arrays.asList(TimeRange.fromStartEnd(60, 1380, false));
+
+    Assert.assertEquals(expected, query.query(events, request));
+    Assert.assertEquals(expected, query.query(index, request));
+  }
+
+  @Test
+  public void matchesIntervalQuery() {
+    Random random = new Random(15);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      people.add("Bitmap Person " + i);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 600; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = random.nextInt(Math.min(40, TimeRange.WHOLE_DAY.end() - start + 1));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())),
+              people.get(random.nextInt(people.size())))));
+    }
+    events.add(new Event("All day", TimeRange.WHOLE_DAY, Arrays.asList(people.get(0))));
+    BitmapIndex index = new BitmapIndex(events);
+
+    int answered = 0;
+    for (int i = 0; i < 100; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList(people.get(random.nextInt(people.size()))), random.nextInt(20));
+      for (int j = 0; j < 3; j++) {
+        request.addOptionalAttendee(people.get(random.nextInt(people.size())));
+      }
+
+      Collection<TimeRange> expected = query.query(events, request);
+      Assert.assertEquals(expected, query.query(index, request));
+      if (!expected.isEmpty()) {
+        answered++;
+      }
+    }
+    Assert.assertTrue(answered > 50);
+  }
+}
@@ -0,0 +1,137 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CalendarSnapshotTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private FindMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new FindMeetingQuery();
+  }
+
+  @Test
+  public void readsBackEveryEvent() throws IOException {
+    Event event1 = new Event("Standup", TimeRange.fromStartDuration(TIME_0800AM, 15),
+        Arrays.asList(PERSON_B, PERSON_A));
+    Event event2 = new Event("Café ☕", TimeRange.fromStartDuration(TIME_0900AM, 30),
+        Arrays.asList("Zoë"));
+
+    CalendarSnapshot snapshot = writeAndOpen(Arrays.asList(event1, event2));
+
+    Assert.assertEquals(2, snapshot.size());
+    Assert.assertEquals(3, snapshot.attendeeCount());
+    Assert.assertEquals(event1, snapshot.getEvent(0));
+    Assert.assertEquals(event2, snapshot.getEvent(1));
+  }
+
+  @Test
+  public void attendeesWithIdsFromAfterOpeningHaveNoEvents() throws IOException {
+    CalendarSnapshot snapshot = writeAndOpen(Arrays.asList(new Event("Event",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A))));
+
+    // This person gets an id only after the snapshot was opened
+    String later = "Snapshot Person Added Later";
+    new Event("Later event", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+        Arrays.asList(later));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(later), DURATION_30_MINUTES);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), query.query(snapshot, request));
+  }
+
+  @Test
+  public void emptySnapshotAnswersWholeDay() throws IOException {
+    CalendarSnapshot snapshot = writeAndOpen(Collections.emptyList());
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Assert.assertEquals(0, snapshot.size());
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), query.query(snapshot, request));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherFiles() throws IOException {
+    Path file = folder.newFile().toPath();
+    Files.write(file, "not a snapshot, just some text".getBytes("UTF-8"));
+
+    CalendarSnapshot.open(file);
+  }
+
+  @Test
+  public void queryMatchesEventQuery() throws IOException {
+    Random random = new Random(17);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      people.add("Person " + i);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = random.nextInt(Math.min(60, TimeRange.WHOLE_DAY.end() - start + 1));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())),
+              people.get(random.nextInt(people.size())))));
+    }
+    events.add(new Event("All day", TimeRange.WHOLE_DAY, Arrays.asList(people.get(0))));
+    CalendarSnapshot snapshot = writeAndOpen(events);
+
+    List<MeetingRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList(people.get(random.nextInt(people.size()))), 1 + random.nextInt(10));
+      request.addOptionalAttendee(people.get(random.nextInt(people.size())));
+      requests.add(request);
+
+      Assert.assertEquals(query.query(events, request), query.query(snapshot, request));
+    }
+    Assert.assertEquals(query.queryAll(events, requests), query.queryAll(snapshot, requests));
+  }
+
+  private CalendarSnapshot writeAndOpen(List<Event> events) throws IOException {
+    Path file = folder.newFile().toPath();
+    CalendarSnapshot.write(events, file);
+    return CalendarSnapshot.open(file);
+  }
+}
@@ -0,0 +1,279 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CalendarTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private static final Event EVENT_A = new Event("Event 1",
+      TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+  private static final Event EVENT_B = new Event("Event 2",
+      TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Arrays.asList(PERSON_B));
+
+  private FindMeetingQuery query;
+  private MeetingRequest request;
+
+  @Before
+  public void setUp() {
+    query = new FindMeetingQuery();
+    request = new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+  }
+
+  @Test
+  public void addedEventsAreBusy() {
+    Calendar calendar = new Calendar();
+    calendar.addEvent(EVENT_A);
+    calendar.addEvent(EVENT_B);
+
+    Collection<TimeRange> actual = query.query(calendar, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(2, calendar.size());
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void removedEventsAreFree() {
+    Calendar calendar = new Calendar(Arrays.asList(EVENT_A, EVENT_B));
+
+    Assert.assertTrue(calendar.removeEvent(EVENT_A));
+
+    Collection<TimeRange> actual = query.query(calendar, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(1, calendar.size());
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void removingUnknownEventDoesNothing() {
+    Calendar calendar = new Calendar(Arrays.asList(EVENT_A));
+
+    Assert.assertFalse(calendar.removeEvent(EVENT_B));
+    Assert.assertEquals(1, calendar.size());
+  }
+
+  @Test
+  public void duplicateEventStaysBusyUntilEveryCopyIsRemoved() {
+    Calendar calendar = new Calendar(Arrays.asList(EVENT_A, EVENT_A));
+    MeetingRequest requestA = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    calendar.removeEvent(EVENT_A);
+    Assert.assertEquals(2, query.query(calendar, requestA).size());
+
+    calendar.removeEvent(EVENT_A);
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), query.query(calendar, requestA));
+    Assert.assertEquals(0, calendar.getEvents().size());
+  }
+
+  @Test
+  public void queryMatchesFullScanAfterEdits() {
+    // The seed is fixed so that failures can be reproduced.
+    Random random = new Random(3);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      people.add("Calendar Person " + i);
+    }
+
+    Calendar calendar = new Calendar();
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      if (!events.isEmpty() && random.nextInt(3) == 0) {
+        Event removed = events.remove(random.nextInt(events.size()));
+        Assert.assertTrue(calendar.removeEvent(removed));
+        continue;
+      }
+
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = 1 + random.nextInt(Math.min(60, TimeRange.WHOLE_DAY.end() - start));
+      Event event = new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size()))));
+      events.add(event);
+      calendar.addEvent(event);
+    }
+
+    Assert.assertEquals(events.size(), calendar.size());
+    for (int i = 0; i < 50; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList(people.get(random.nextInt(people.size()))), 1 + random.nextInt(20));
+      request.addOptionalAttendee(people.get(random.nextInt(people.size())));
+
+      Assert.assertEquals(query.query(events, request), query.query(calendar, request));
+    }
+  }
+
+  @Test
+  public void versionDoesNotChangeAfterEdits() {
+    Calendar calendar = new Calendar(Arrays.asList(EVENT_A));
+    CalendarVersion version = calendar.getVersion();
+    Collection<TimeRange> before = query.query(version, request);
+
+    calendar.addEvent(EVENT_B);
+    calendar.removeEvent(EVENT_A);
+
+    Assert.assertEquals(before, query.query(version, request));
+    Assert.assertEquals(1, version.size());
+    Assert.assertTrue(calendar.getVersion().getNumber() > version.getNumber());
+    Assert.assertNotEquals(before, query.query(calendar, request));
+  }
+
+  @Test
+  public void duplicateIntervalsOnlyChangeTheEventCount() {
+    Calendar calendar = new Calendar(Arrays.asList(EVENT_A));
+    CalendarVersion version = calendar.getVersion();
+    int id = AttendeeDictionary.getInstance().getId(PERSON_A);
+
+    // A second copy of the event gives nobody a new interval
+    calendar.addEvent(EVENT_A);
+
+    CalendarVersion next = calendar.getVersion();
+    Assert.assertEquals(2, next.size());
+    Assert.assertTrue(next.getNumber() > version.getNumber());
+    Assert.assertSame(version.getAttendeeIntervals(id), next.getAttendeeIntervals(id));
+    Assert.assertEquals(query.query(version, request), query.query(next, request));
+  }
+
+  @Test
+  public void everyVersionKeepsItsIntervalsOverManyChanges() {
+    // Enough changes to one person that their intervals are rebuilt from the tree several times,
+    // with duplicate events and removals in between. The versions are only read at the end.
+    String person = "Version Person";
+    MeetingRequest personRequest = new MeetingRequest(Arrays.asList(person), 1);
+    Random random = new Random(31);
+    Calendar calendar = new Calendar();
+    List<Event> events = new ArrayList<>();
+    List<CalendarVersion> versions = new ArrayList<>();
+    List<List<Event>> expectedEvents = new ArrayList<>();
+    for (int i = 0; i < 5 * AttendeeIntervals.MAX_CHAIN; i++) {
+      if (!events.isEmpty() && random.nextInt(3) == 0) {
+        calendar.removeEvent(events.remove(random.nextInt(events.size())));
+      } else {
+        // Few different start times, so some events have the same interval
+        Event event = new Event("Version " + i,
+            TimeRange.fromStartDuration(random.nextInt(40) * 30, 30), Arrays.asList(person));
+        events.add(event);
+        calendar.addEvent(event);
+      }
+      versions.add(calendar.getVersion());
+      expectedEvents.add(new ArrayList<>(events));
+    }
+
+    for (int i = versions.size() - 1; i >= 0; i--) {
+      Assert.assertEquals(query.query(expectedEvents.get(i), personRequest),
+          query.query(versions.get(i), personRequest));
+    }
+  }
+
+  @Test
+  public void concurrentReadersAlwaysSeeOneVersion() throws Exception {
+    // Every event has both attendees, so in any one version they are busy at exactly the same
+    // times. A reader that saw a change for one of them but not the other would get two answers.
+    String personX = "Stress Person X";
+    String personY = "Stress Person Y";
+    MeetingRequest requestX = new MeetingRequest(Arrays.asList(personX), 1);
+    MeetingRequest requestY = new MeetingRequest(Arrays.asList(personY), 1);
+    Calendar calendar = new Calendar();
+
+    int writerCount = 2;
+    int readerCount = 4;
+    int writesPerWriter = 3000;
+    ExecutorService executor = Executors.newFixedThreadPool(writerCount + readerCount);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch writersDone = new CountDownLatch(writerCount);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int w = 0; w < writerCount; w++) {
+        Random random = new Random(20 + w);
+        futures.add(executor.submit(() -> {
+          start.await();
+          List<Event> added = new ArrayList<>();
+          for (int i = 0; i < writesPerWriter; i++) {
+            if (!added.isEmpty() && random.nextInt(3) == 0) {
+              calendar.removeEvent(added.remove(random.nextInt(added.size())));
+              continue;
+            }
+            int eventStart = random.nextInt(TimeRange.WHOLE_DAY.duration() - 30);
+            Event event = new Event("Stress " + i,
+                TimeRange.fromStartDuration(eventStart, 1 + random.nextInt(30)),
+                Arrays.asList(personX, personY));
+            added.add(event);
+            calendar.addEvent(event);
+          }
+          writersDone.countDown();
+          return null;
+        }));
+      }
+
+      for (int r = 0; r < readerCount; r++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          long lastNumber = -1;
+          do {
+            CalendarVersion version = calendar.getVersion();
+            Assert.assertTrue(version.getNumber() >= lastNumber);
+            lastNumber = version.getNumber();
+            Assert.assertEquals(query.query(version, requestX), query.query(version, requestY));
+          } while (writersDone.getCount() > 0);
+          return null;
+        }));
+      }
+
+      start.countDown();
+      for (Future<?> future : futures) {
+        // Rethrows any assertion that failed on a reader or writer thread
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Once the writers are done, the latest version matches the events that are left
+    List<Event> events = calendar.getEvents();
+    Assert.assertEquals(events.size(), calendar.size());
+    Assert.assertEquals(query.query(events, requestX), query.query(calendar, requestX));
+  }
+}
@@ -0,0 +1,126 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class ColumnarEventStoreTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private FindMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new FindMeetingQuery();
+  }
+
+  @Test
+  public void readsBackEveryColumn() {
+    Event event1 = new Event("Standup", TimeRange.fromStartDuration(TIME_0800AM, 15),
+        Arrays.asList(PERSON_A, PERSON_B));
+    Event event2 = new Event("Café ☕", TimeRange.fromStartDuration(TIME_0900AM, 30),
+        Arrays.asList(PERSON_B));
+
+    ColumnarEventStore store = ColumnarEventStore.of(Arrays.asList(event1, event2));
+
+    Assert.assertEquals(2, store.size());
+    Assert.assertEquals(TIME_0900AM, store.getStart(1));
+    Assert.assertEquals(TIME_0900AM + 30, store.getEnd(1));
+    Assert.assertEquals("Café ☕", store.getTitle(1));
+    Assert.assertEquals(2, store.getAttendeeCount(0));
+    Assert.assertEquals(AttendeeDictionary.getInstance().getId(PERSON_B),
+        store.getAttendeeId(1, 0));
+    Assert.assertEquals(event1, store.getEvent(0));
+    Assert.assertEquals(event2, store.getEvent(1));
+  }
+
+  @Test
+  public void repeatedTitlesAreStoredOnce() {
+    ColumnarEventStore.Builder builder = new ColumnarEventStore.Builder();
+    for (int i = 0; i < 5000; i++) {
+      builder.add(i % 2 == 0 ? "Standup" : "Lunch", i % 1400, i % 1400 + 10,
+          Arrays.asList(PERSON_A));
+    }
+
+    ColumnarEventStore store = builder.build();
+
+    Assert.assertEquals(5000, store.size());
+    Assert.assertEquals(2, store.getTitleCount());
+    Assert.assertEquals("Lunch", store.getTitle(4999));
+    Assert.assertTrue(store.getOffHeapBytes() > 5000 * 4 * Integer.BYTES);
+  }
+
+  @Test
+  public void emptyStoreAnswersWholeDay() {
+    ColumnarEventStore store = ColumnarEventStore.of(Collections.emptyList());
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Assert.assertEquals(0, store.getTitleCount());
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), query.query(store, request));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void builderCanOnlyBuildOnce() {
+    ColumnarEventStore.Builder builder = new ColumnarEventStore.Builder();
+    builder.build();
+    builder.add("Event", TIME_0800AM, TIME_0900AM, Arrays.asList(PERSON_A));
+  }
+
+  @Test
+  public void queryMatchesEventQuery() {
+    Random random = new Random(16);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      people.add("Person " + i);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = random.nextInt(Math.min(60, TimeRange.WHOLE_DAY.end() - start + 1));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())),
+              people.get(random.nextInt(people.size())))));
+    }
+    events.add(new Event("All day", TimeRange.WHOLE_DAY, Arrays.asList(people.get(0))));
+    ColumnarEventStore store = ColumnarEventStore.of(events);
+
+    for (int i = 0; i < 50; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList(people.get(random.nextInt(people.size()))), 1 + random.nextInt(10));
+      request.addOptionalAttendee(people.get(random.nextInt(people.size())));
+
+      Assert.assertEquals(query.query(events, request), query.query(store, request));
+    }
+  }
+}
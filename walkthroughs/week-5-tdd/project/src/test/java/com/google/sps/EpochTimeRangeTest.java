@@ -0,0 +1,83 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EpochTimeRangeTest {
+  private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+  private static final ZoneId TOKYO = ZoneId.of("Asia/Tokyo");
+  private static final ZoneId UTC = ZoneId.of("UTC");
+
+  private static final LocalDate NEW_YEAR = LocalDate.of(2020, 1, 1);
+  // The clocks in New York went forward an hour on this day.
+  private static final LocalDate DAYLIGHT_SAVING_START = LocalDate.of(2020, 3, 8);
+
+  @Test
+  public void sameInstantInDifferentZonesIsEqual() {
+    ZonedDateTime start = ZonedDateTime.of(2020, 1, 1, 9, 0, 0, 0, NEW_YORK);
+    ZonedDateTime end = start.plusHours(1);
+
+    EpochTimeRange inNewYork = EpochTimeRange.fromStartEnd(start, end);
+    EpochTimeRange inTokyo = EpochTimeRange.fromStartEnd(
+        start.withZoneSameInstant(TOKYO), end.withZoneSameInstant(TOKYO));
+
+    Assert.assertEquals(inNewYork, inTokyo);
+    Assert.assertEquals(60, inTokyo.duration());
+    Assert.assertEquals(start, inTokyo.startIn(NEW_YORK));
+  }
+
+  @Test
+  public void dayIsShorterWhenClocksGoForward() {
+    Assert.assertEquals(24 * 60, EpochTimeRange.ofDay(NEW_YEAR, NEW_YORK).duration());
+    Assert.assertEquals(23 * 60, EpochTimeRange.ofDay(DAYLIGHT_SAVING_START, NEW_YORK).duration());
+  }
+
+  @Test
+  public void timeRangeKeepsWallClockTimes() {
+    TimeRange nineToTen = TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(9, 0), 60);
+
+    EpochTimeRange range = EpochTimeRange.ofTimeRange(DAYLIGHT_SAVING_START, NEW_YORK, nineToTen);
+
+    Assert.assertEquals(9, range.startIn(NEW_YORK).getHour());
+    Assert.assertEquals(10, range.endIn(NEW_YORK).getHour());
+  }
+
+  @Test
+  public void wholeDayTimeRangeMatchesDay() {
+    Assert.assertEquals(EpochTimeRange.ofDay(NEW_YEAR, UTC),
+        EpochTimeRange.ofTimeRange(NEW_YEAR, UTC, TimeRange.WHOLE_DAY));
+  }
+
+  @Test
+  public void overlapsAcrossMidnight() {
+    EpochTimeRange day = EpochTimeRange.ofDay(NEW_YEAR, UTC);
+    EpochTimeRange lateNight = EpochTimeRange.fromStartDuration(day.end() - 30, 60);
+    EpochTimeRange nextDay = EpochTimeRange.fromStartDuration(day.end(), 60);
+
+    Assert.assertTrue(day.overlaps(lateNight));
+    Assert.assertTrue(lateNight.overlaps(nextDay));
+    Assert.assertFalse(day.overlaps(nextDay));
+    Assert.assertFalse(day.contains(day.end()));
+  }
+}
@@ -0,0 +1,194 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventIndexTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private FindMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new FindMeetingQuery();
+  }
+
+  @Test
+  public void indexesEveryAttendee() {
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A, PERSON_B)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    EventIndex index = new EventIndex(events);
+
+    Assert.assertEquals(2, index.attendeeCount());
+    Assert.assertEquals(1, index.getIntervals(PERSON_A).length);
+    Assert.assertEquals(2, index.getIntervals(PERSON_B).length);
+    Assert.assertEquals(0, index.getIntervals(PERSON_C).length);
+  }
+
+  @Test
+  public void intervalsAreSortedByStart() {
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)));
+
+    long[] intervals = new EventIndex(events).getIntervals(PERSON_A);
+
+    Assert.assertEquals(TIME_0800AM, IntervalBuffer.start(intervals[0]));
+    Assert.assertEquals(TIME_0900AM, IntervalBuffer.start(intervals[1]));
+  }
+
+  @Test
+  public void queryIgnoresPeopleNotAttending() {
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(new EventIndex(events), request);
+    Collection<TimeRange> expected = Arrays.asList(TimeRange.WHOLE_DAY);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void queryIgnoresShortOptionalEvents() {
+    // The optional attendee's event is shorter than the meeting, so it should be ignored.
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0800AM, 15),
+            Arrays.asList(PERSON_B)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    Collection<TimeRange> actual = query.query(new EventIndex(events), request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0830AM, false),
+            TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void queryMatchesFullScan() {
+    // The seed is fixed so that failures can be reproduced.
+    Random random = new Random(7);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      people.add("Person " + i);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = 1 + random.nextInt(Math.min(90, TimeRange.WHOLE_DAY.end() - start));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())),
+              people.get(random.nextInt(people.size())))));
+    }
+    EventIndex index = new EventIndex(events);
+
+    for (int i = 0; i < 100; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList(people.get(random.nextInt(people.size()))), 1 + random.nextInt(20));
+      request.addOptionalAttendee(people.get(random.nextInt(people.size())));
+
+      Assert.assertEquals(query.query(events, request), query.query(index, request));
+    }
+  }
+
+  @Test
+  public void parallelQueryMatchesSequentialQuery() {
+    // A large meeting where most people are required and some are optional. A threshold of 1 always
+    // uses the parallel mode, while the default threshold is above the size of this meeting.
+    Random random = new Random(11);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      people.add("Parallel Person " + i);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = 1 + random.nextInt(Math.min(10, TimeRange.WHOLE_DAY.end() - start));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())))));
+    }
+    EventIndex index = new EventIndex(events);
+
+    MeetingRequest request = new MeetingRequest(people.subList(0, 600), 5);
+    for (String person : people.subList(600, people.size())) {
+      request.addOptionalAttendee(person);
+    }
+
+    FindMeetingQuery parallelQuery = new FindMeetingQuery(1);
+    Collection<TimeRange> expected = query.query(index, request);
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals(expected, parallelQuery.query(index, request));
+    Assert.assertEquals(query.query(events, request), parallelQuery.query(index, request));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parallelThresholdMustBePositive() {
+    new FindMeetingQuery(0);
+  }
+
+  @Test
+  public void firstEndingAfterSkipsEventsThatAreOver() {
+    // Events : |----A----|
+    //            |-A-|      |-A-|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_C)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0800AM + 10, 10),
+            Arrays.asList(PERSON_C)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_0900AM + 30, 10),
+            Arrays.asList(PERSON_C)));
+    EventIndex index = new EventIndex(events);
+    int id = AttendeeDictionary.getInstance().getId(PERSON_C);
+
+    Assert.assertEquals(0, index.firstEndingAfter(id, TimeRange.START_OF_DAY));
+    // The long first event is still going on, even though the second one is over
+    Assert.assertEquals(0, index.firstEndingAfter(id, TIME_0830AM));
+    Assert.assertEquals(2, index.firstEndingAfter(id, TIME_0900AM));
+    Assert.assertEquals(3, index.firstEndingAfter(id, TimeRange.END_OF_DAY));
+  }
+}
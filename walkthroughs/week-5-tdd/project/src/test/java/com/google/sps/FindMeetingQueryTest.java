@@ -18,7 +18,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -387,5 +391,400 @@ public final class FindMeetingQueryTest {
 
     Assert.assertEquals(expected, actual);
   }
-}
 
+  @Test
+  public void testGapInsideNestedEventIsNotFree() {
+    // One long event contains two shorter events with a gap between them. The gap is still covered
+    // by the long event, so it should not be returned.
+    //
+    // Events  :       |--------A--------|
+    //                   |-B-|     |-C-|
+    // Day     : |-----------------------------|
+    // Options : |--1--|                 |--2--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_1100AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_C)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B, PERSON_C), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testUnsortedEvents() {
+    // The events are given in reverse order. The options should still be sorted by start time.
+    //
+    // Events  :       |--A--|     |--B--|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--2--|     |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testManyEventsMatchMinuteByMinuteCheck() {
+    // Build a large random calendar and check the result against a simple minute by minute scan of
+    // the day. The seed is fixed so that failures can be reproduced.
+    Random random = new Random(42);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      people.add("Person " + i);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = 1 + random.nextInt(Math.min(60, TimeRange.WHOLE_DAY.end() - start));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())))));
+    }
+
+    for (int i = 0; i < 50; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList(people.get(random.nextInt(people.size()))), 1 + random.nextInt(10));
+      request.addOptionalAttendee(people.get(random.nextInt(people.size())));
+
+      Assert.assertEquals(queryMinuteByMinute(events, request), query.query(events, request));
+    }
+  }
+
+  @Test
+  public void testQueryAllAnswersEachRequestInOrder() {
+    // Events  :       |--A--|     |--B--|
+    // Day     : |-----------------------------|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES),
+        new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES),
+        new MeetingRequest(Arrays.asList(PERSON_C), DURATION_30_MINUTES),
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES));
+
+    List<Collection<TimeRange>> actual = query.queryAll(events, requests);
+    List<Collection<TimeRange>> expected = new ArrayList<>();
+    for (MeetingRequest request : requests) {
+      expected.add(query.query(events, request));
+    }
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testRankedRangesByAvailableOptionalAttendees() {
+    // Mandatory attendee A is busy early, and the optional attendees B and C have overlapping
+    // events. Every longest range where at least 2, 1 or 0 of them are free is returned once.
+    //
+    // Events  :       |--A--|     |----B----|
+    //                                  |-------C-------|
+    // Day     : |---------------------------------------------|
+    // Options : |--2--|     |--2--|                    |--2---|
+    //                       |-----1----|          |-----1-----|
+    //                       |---------------0-----------------|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_0930AM, TIME_1100AM, false),
+            Arrays.asList(PERSON_C)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+    request.addOptionalAttendee(PERSON_C);
+
+    List<RankedTimeRange> actual = query.queryRanked(events, request);
+    List<RankedTimeRange> expected = Arrays.asList(
+        new RankedTimeRange(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), 2),
+        new RankedTimeRange(TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false), 2),
+        new RankedTimeRange(TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true), 2),
+        new RankedTimeRange(TimeRange.fromStartEnd(TIME_0830AM, TIME_0930AM, false), 1),
+        new RankedTimeRange(TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true), 1),
+        new RankedTimeRange(TimeRange.fromStartEnd(TIME_0830AM, TimeRange.END_OF_DAY, true), 0));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testRankedRangesIgnoreRangesTooShortForTheMeeting() {
+    // The gap where both optional attendees are free is too short, so the best option only has
+    // one of them.
+    //
+    // Events  : |--B--|  |---A---|
+    // Day     : |----------------|
+    // Options : |--------1-------|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0830AM, false),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(NO_ATTENDEES, DURATION_60_MINUTES);
+    request.addOptionalAttendee(PERSON_A);
+    request.addOptionalAttendee(PERSON_B);
+
+    List<RankedTimeRange> actual = query.queryRanked(events, request);
+    List<RankedTimeRange> expected = Arrays.asList(new RankedTimeRange(TimeRange.WHOLE_DAY, 1));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testRankedRangesWithoutOptionalAttendeesMatchQuery() {
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    List<RankedTimeRange> expected = new ArrayList<>();
+    for (TimeRange range : query.query(events, request)) {
+      expected.add(new RankedTimeRange(range, 0));
+    }
+
+    Assert.assertEquals(expected, query.queryRanked(events, request));
+  }
+
+  @Test
+  public void testRankedRangesMatchMinuteByMinuteCheck() {
+    Random random = new Random(7);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      people.add("Person " + i);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = 1 + random.nextInt(Math.min(120, TimeRange.WHOLE_DAY.end() - start));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())))));
+    }
+
+    for (int i = 0; i < 50; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList(people.get(random.nextInt(people.size()))), 1 + random.nextInt(30));
+      for (int j = 0; j < 4; j++) {
+        request.addOptionalAttendee(people.get(random.nextInt(people.size())));
+      }
+
+      Assert.assertEquals(
+          queryRankedMinuteByMinute(events, request), query.queryRanked(events, request));
+    }
+  }
+
+  @Test
+  public void testFindEarliest() {
+    // Events  : |--A--|     |--B--|
+    // Day     : |---------------------|
+    // Earliest:       |--1--|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_B)));
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Optional<TimeRange> expected =
+        Optional.of(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false));
+
+    Assert.assertEquals(expected, query.findEarliest(events, request));
+    Assert.assertEquals(expected, query.findEarliest(new EventIndex(events), request));
+  }
+
+  @Test
+  public void testFindEarliestWithNoOptions() {
+    Collection<Event> events =
+        Arrays.asList(new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Assert.assertFalse(query.findEarliest(events, request).isPresent());
+    Assert.assertFalse(query.findEarliest(new EventIndex(events), request).isPresent());
+  }
+
+  @Test
+  public void testFindFirstKFromCutsRangeInProgress() {
+    // Events  :       |--A--|     |--A--|
+    // Day     : |---------------------------|
+    // From    :    ^
+    // Options :    |1|      |-2-|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_1000AM, TIME_1100AM, false),
+            Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    List<TimeRange> actual = query.findFirstK(new EventIndex(events), request, 2, TIME_0800AM);
+    List<TimeRange> expected = Arrays.asList(
+        TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+        TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testFindFirstKMatchesQuery() {
+    Random random = new Random(99);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      people.add("Person " + i);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = 1 + random.nextInt(Math.min(60, TimeRange.WHOLE_DAY.end() - start));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())))));
+    }
+    EventIndex index = new EventIndex(events);
+
+    for (int i = 0; i < 50; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList(people.get(random.nextInt(people.size()))), 1 + random.nextInt(10));
+      request.addOptionalAttendee(people.get(random.nextInt(people.size())));
+      int k = 1 + random.nextInt(5);
+
+      List<TimeRange> all = new ArrayList<>(query.query(events, request));
+      List<TimeRange> expected = all.subList(0, Math.min(k, all.size()));
+
+      Assert.assertEquals(expected, query.findFirstK(events, request, k));
+      Assert.assertEquals(expected, query.findFirstK(index, request, k));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindFirstKRejectsZero() {
+    query.findFirstK(NO_EVENTS, new MeetingRequest(NO_ATTENDEES, DURATION_30_MINUTES), 0);
+  }
+
+  // Reference implementation that marks every busy minute of the day and then collects the runs of
+  // free minutes that are long enough for the meeting.
+  private static List<TimeRange> queryMinuteByMinute(
+      Collection<Event> events, MeetingRequest request) {
+    boolean[] busy = new boolean[TimeRange.WHOLE_DAY.duration()];
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+      boolean mandatory = !Collections.disjoint(event.getAttendees(), request.getAttendees());
+      boolean optional = !Collections.disjoint(event.getAttendees(), request.getOptionalAttendees())
+          && when.duration() >= request.getDuration() && !when.equals(TimeRange.WHOLE_DAY);
+      if (mandatory || optional) {
+        for (int minute = when.start(); minute < when.end(); minute++) {
+          busy[minute] = true;
+        }
+      }
+    }
+
+    List<TimeRange> ranges = new ArrayList<>();
+    int minute = 0;
+    while (minute < busy.length) {
+      if (busy[minute]) {
+        minute++;
+        continue;
+      }
+      int start = minute;
+      while (minute < busy.length && !busy[minute]) {
+        minute++;
+      }
+      if (minute - start >= request.getDuration()) {
+        ranges.add(TimeRange.fromStartEnd(start, minute, false));
+      }
+    }
+    return ranges;
+  }
+
+  // Reference implementation of the ranked query. It counts the free optional attendees of every
+  // minute (or -1 when a mandatory attendee is busy), then for every k collects the runs of minutes
+  // with at least k free optional attendees.
+  private static List<RankedTimeRange> queryRankedMinuteByMinute(
+      Collection<Event> events, MeetingRequest request) {
+    List<String> optionalAttendees = new ArrayList<>(request.getOptionalAttendees());
+    optionalAttendees.removeAll(request.getAttendees());
+    boolean[][] busy = new boolean[optionalAttendees.size() + 1][TimeRange.WHOLE_DAY.duration()];
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+      for (int minute = when.start(); minute < when.end(); minute++) {
+        if (!Collections.disjoint(event.getAttendees(), request.getAttendees())) {
+          busy[optionalAttendees.size()][minute] = true;
+        }
+        for (int i = 0; i < optionalAttendees.size(); i++) {
+          if (event.getAttendees().contains(optionalAttendees.get(i))) {
+            busy[i][minute] = true;
+          }
+        }
+      }
+    }
+
+    int[] available = new int[TimeRange.WHOLE_DAY.duration()];
+    for (int minute = 0; minute < available.length; minute++) {
+      if (busy[optionalAttendees.size()][minute]) {
+        available[minute] = -1;
+        continue;
+      }
+      for (int i = 0; i < optionalAttendees.size(); i++) {
+        if (!busy[i][minute]) {
+          available[minute]++;
+        }
+      }
+    }
+
+    Set<RankedTimeRange> ranges = new LinkedHashSet<>();
+    for (int k = 0; k <= optionalAttendees.size(); k++) {
+      int minute = 0;
+      while (minute < available.length) {
+        if (available[minute] < k) {
+          minute++;
+          continue;
+        }
+        int start = minute;
+        int least = available[minute];
+        while (minute < available.length && available[minute] >= k) {
+          least = Math.min(least, available[minute]);
+          minute++;
+        }
+        if (minute - start >= request.getDuration()) {
+          ranges.add(new RankedTimeRange(TimeRange.fromStartEnd(start, minute, false), least));
+        }
+      }
+    }
+
+    List<RankedTimeRange> ranked = new ArrayList<>(ranges);
+    ranked.sort((a, b) -> a.getAvailableOptionalAttendees() != b.getAvailableOptionalAttendees()
+        ? b.getAvailableOptionalAttendees() - a.getAvailableOptionalAttendees()
+        : a.getRange().start() - b.getRange().start());
+    return ranked;
+  }
+}
@@ -0,0 +1,219 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class HorizonQueryTest {
+  private static final Collection<EpochEvent> NO_EVENTS = Collections.emptySet();
+
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final ZoneId UTC = ZoneId.of("UTC");
+  private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+  private static final long DAY = 24 * 60;
+
+  // Three weeks, starting at midnight on the first day of the year 2020.
+  private static final EpochTimeRange HORIZON = EpochTimeRange.fromStartDuration(
+      EpochTimeRange.ofDay(FIRST_DAY, UTC).start(), 21 * DAY);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_1_HOUR = 60;
+
+  private HorizonQuery query;
+
+  @Before
+  public void setUp() {
+    query = new HorizonQuery();
+  }
+
+  @Test
+  public void noEventsGivesWholeHorizon() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+
+    Assert.assertEquals(Arrays.asList(HORIZON), query.query(NO_EVENTS, request, HORIZON));
+  }
+
+  @Test
+  public void meetingLongerThanOneDayFitsAcrossDays() {
+    // A is busy for the first and third weeks, so only the second week is free
+    Collection<EpochEvent> events = Arrays.asList(
+        new EpochEvent("Week 1", EpochTimeRange.fromStartDuration(HORIZON.start(), 7 * DAY),
+            Arrays.asList(PERSON_A)),
+        new EpochEvent("Week 3", EpochTimeRange.fromStartDuration(HORIZON.start() + 14 * DAY,
+            7 * DAY), Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 3 * DAY);
+
+    List<EpochTimeRange> actual = query.query(events, request, HORIZON);
+    List<EpochTimeRange> expected = Arrays.asList(
+        EpochTimeRange.fromStartDuration(HORIZON.start() + 7 * DAY, 7 * DAY));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void eventsOutsideHorizonAreIgnored() {
+    // An event that started before the horizon still blocks its first hour
+    Collection<EpochEvent> events = Arrays.asList(
+        new EpochEvent("Before", EpochTimeRange.fromStartDuration(HORIZON.start() - DAY, DAY),
+            Arrays.asList(PERSON_A)),
+        new EpochEvent("Overnight", EpochTimeRange.fromStartDuration(HORIZON.start() - 60, 120),
+            Arrays.asList(PERSON_A)),
+        new EpochEvent("After", EpochTimeRange.fromStartDuration(HORIZON.end(), DAY),
+            Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    List<EpochTimeRange> actual = query.query(events, request, HORIZON);
+    List<EpochTimeRange> expected =
+        Arrays.asList(EpochTimeRange.fromStartEnd(HORIZON.start() + 60, HORIZON.end()));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void optionalAttendeeWholeDayEventIsIgnored() {
+    Collection<EpochEvent> events = Arrays.asList(
+        new EpochEvent("Holiday", EpochTimeRange.ofDay(FIRST_DAY, UTC), Arrays.asList(PERSON_B)),
+        new EpochEvent("Lunch",
+            EpochTimeRange.fromStartDuration(HORIZON.start() + DAY + 12 * 60, DURATION_1_HOUR),
+            Arrays.asList(PERSON_B)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    List<EpochTimeRange> actual = query.query(events, request, HORIZON);
+    List<EpochTimeRange> expected = Arrays.asList(
+        EpochTimeRange.fromStartEnd(HORIZON.start(), HORIZON.start() + DAY + 12 * 60),
+        EpochTimeRange.fromStartEnd(HORIZON.start() + DAY + 13 * 60, HORIZON.end()));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void singleDayMatchesFindMeetingQuery() {
+    Random random = new Random(11);
+    List<Event> events = new ArrayList<>();
+    List<EpochEvent> epochEvents = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = 1 + random.nextInt(Math.min(90, TimeRange.WHOLE_DAY.end() - start));
+      TimeRange when = TimeRange.fromStartDuration(start, duration);
+      List<String> attendees = Arrays.asList("Person " + random.nextInt(10));
+      events.add(new Event("Event " + i, when, attendees));
+      epochEvents.add(new EpochEvent(
+          "Event " + i, EpochTimeRange.ofTimeRange(FIRST_DAY, UTC, when), attendees));
+    }
+
+    EpochTimeRange day = EpochTimeRange.ofDay(FIRST_DAY, UTC);
+    HorizonIndex index = new HorizonIndex(epochEvents);
+    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+    for (int i = 0; i < 50; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList("Person " + random.nextInt(10)), 1 + random.nextInt(30));
+      request.addOptionalAttendee("Person " + random.nextInt(10));
+
+      List<EpochTimeRange> expected = new ArrayList<>();
+      for (TimeRange range : findMeetingQuery.query(events, request)) {
+        expected.add(EpochTimeRange.ofTimeRange(FIRST_DAY, UTC, range));
+      }
+
+      Assert.assertEquals(expected, query.query(index, request, day));
+    }
+  }
+
+  @Test
+  public void dailyStandupBlocksEveryDay() {
+    // A has a standup from 9:00 to 9:15 every weekday and a one-off event on the first day
+    Collection<RecurringEvent> recurringEvents = Arrays.asList(new RecurringEvent("Standup",
+        Recurrence.of(Recurrence.Frequency.WEEKDAYS, FIRST_DAY, LocalTime.of(9, 0), 15, UTC),
+        Arrays.asList(PERSON_A)));
+    Collection<EpochEvent> events = Arrays.asList(new EpochEvent("Review",
+        EpochTimeRange.fromStartDuration(HORIZON.start() + 9 * 60 + 15, DURATION_1_HOUR),
+        Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    EpochTimeRange twoDays = EpochTimeRange.fromStartDuration(HORIZON.start(), 2 * DAY);
+
+    List<EpochTimeRange> actual = query.query(events, recurringEvents, request, twoDays);
+    List<EpochTimeRange> expected = Arrays.asList(
+        EpochTimeRange.fromStartEnd(HORIZON.start(), HORIZON.start() + 9 * 60),
+        EpochTimeRange.fromStartEnd(HORIZON.start() + 10 * 60 + 15, HORIZON.start() + DAY + 9 * 60),
+        EpochTimeRange.fromStartEnd(HORIZON.start() + DAY + 9 * 60 + 15, twoDays.end()));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void recurringEventsMatchExpandedEvents() {
+    Random random = new Random(19);
+    Recurrence.Frequency[] frequencies = Recurrence.Frequency.values();
+    List<RecurringEvent> recurringEvents = new ArrayList<>();
+    List<EpochEvent> expanded = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      Recurrence recurrence = Recurrence.of(frequencies[random.nextInt(frequencies.length)],
+          FIRST_DAY.plusDays(random.nextInt(10) - 5),
+          LocalTime.of(random.nextInt(24), 15 * random.nextInt(4)), 15 + random.nextInt(120), UTC)
+          .except(FIRST_DAY.plusDays(random.nextInt(21)));
+      if (random.nextBoolean()) {
+        recurrence = recurrence.until(FIRST_DAY.plusDays(random.nextInt(21)));
+      }
+      List<String> attendees = Arrays.asList("Person " + random.nextInt(5));
+      recurringEvents.add(new RecurringEvent("Recurring " + i, recurrence, attendees));
+      recurrence.occurrences(HORIZON).forEachRemaining(
+          when -> expanded.add(new EpochEvent("Occurrence", when, attendees)));
+    }
+
+    List<EpochEvent> events = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      events.add(new EpochEvent("Event " + i, EpochTimeRange.fromStartDuration(
+          HORIZON.start() + random.nextInt((int) HORIZON.duration()), 1 + random.nextInt(180)),
+          Arrays.asList("Person " + random.nextInt(5))));
+    }
+    expanded.addAll(events);
+
+    HorizonIndex lazy = new HorizonIndex(events, recurringEvents);
+    HorizonIndex eager = new HorizonIndex(expanded);
+    for (int i = 0; i < 30; i++) {
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList("Person " + random.nextInt(5)), 1 + random.nextInt(60));
+      request.addOptionalAttendee("Person " + random.nextInt(5));
+      EpochTimeRange horizon = EpochTimeRange.fromStartDuration(
+          HORIZON.start() + random.nextInt(7 * (int) DAY), 1 + random.nextInt(7 * (int) DAY));
+
+      Assert.assertEquals(
+          query.query(eager, request, horizon), query.query(lazy, request, horizon));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nullHorizonIsRejected() {
+    query.query(NO_EVENTS, new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR), null);
+  }
+}
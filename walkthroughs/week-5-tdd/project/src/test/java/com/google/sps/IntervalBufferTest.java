@@ -0,0 +1,117 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class IntervalBufferTest {
+  @Test
+  public void packing() {
+    long packed = IntervalBuffer.pack(TimeRange.START_OF_DAY, TimeRange.WHOLE_DAY.end());
+
+    Assert.assertEquals(TimeRange.START_OF_DAY, IntervalBuffer.start(packed));
+    Assert.assertEquals(TimeRange.WHOLE_DAY.end(), IntervalBuffer.end(packed));
+  }
+
+  @Test
+  public void growsPastInitialCapacity() {
+    IntervalBuffer buffer = new IntervalBuffer(1);
+    for (int i = 0; i < 100; i++) {
+      buffer.add(i, i + 1);
+    }
+
+    Assert.assertEquals(100, buffer.size());
+    Assert.assertEquals(99, buffer.start(99));
+    Assert.assertEquals(100, buffer.end(99));
+  }
+
+  @Test
+  public void sortOrdersByStartThenEnd() {
+    IntervalBuffer buffer = new IntervalBuffer();
+    buffer.add(300, 400);
+    buffer.add(100, 200);
+    buffer.add(100, 150);
+
+    buffer.sort();
+
+    Assert.assertEquals(100, buffer.start(0));
+    Assert.assertEquals(150, buffer.end(0));
+    Assert.assertEquals(100, buffer.start(1));
+    Assert.assertEquals(200, buffer.end(1));
+    Assert.assertEquals(300, buffer.start(2));
+  }
+
+  @Test
+  public void mergeJoinsOverlappingNestedAndTouchingIntervals() {
+    // Intervals : |---|
+    //               |-----|
+    //                 |-|
+    //                     |--|    |--|
+    // Merged    : |----------|    |--|
+    IntervalBuffer buffer = new IntervalBuffer();
+    buffer.add(0, 30);
+    buffer.add(10, 60);
+    buffer.add(20, 30);
+    buffer.add(60, 90);
+    buffer.add(120, 150);
+
+    buffer.sort();
+    buffer.merge();
+
+    Assert.assertEquals(2, buffer.size());
+    Assert.assertEquals(0, buffer.start(0));
+    Assert.assertEquals(90, buffer.end(0));
+    Assert.assertEquals(120, buffer.start(1));
+    Assert.assertEquals(150, buffer.end(1));
+  }
+
+  @Test
+  public void clearKeepsBufferUsable() {
+    IntervalBuffer buffer = new IntervalBuffer();
+    buffer.add(0, 30);
+    buffer.clear();
+
+    Assert.assertTrue(buffer.isEmpty());
+
+    buffer.add(60, 90);
+    buffer.merge();
+    Assert.assertEquals(1, buffer.size());
+    Assert.assertEquals(60, buffer.start(0));
+  }
+
+  @Test
+  public void heapPollsIntervalsInSortedOrder() {
+    IntervalBuffer buffer = new IntervalBuffer();
+    buffer.add(30, 40);
+    buffer.add(10, 50);
+    buffer.add(20, 25);
+    buffer.add(10, 20);
+    buffer.add(0, 5);
+
+    buffer.heapify();
+
+    Assert.assertEquals(IntervalBuffer.pack(0, 5), buffer.pollFirst());
+    Assert.assertEquals(IntervalBuffer.pack(10, 20), buffer.pollFirst());
+    Assert.assertEquals(IntervalBuffer.pack(10, 50), buffer.pollFirst());
+    Assert.assertEquals(IntervalBuffer.pack(20, 25), buffer.pollFirst());
+    Assert.assertEquals(IntervalBuffer.pack(30, 40), buffer.pollFirst());
+    Assert.assertTrue(buffer.isEmpty());
+  }
+}
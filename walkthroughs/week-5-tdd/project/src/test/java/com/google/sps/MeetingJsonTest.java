@@ -0,0 +1,118 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class MeetingJsonTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  @Test
+  public void readsMeetingRequest() throws IOException {
+    String json = "{\"attendees\": [\"Person A\", \"Person B\"], "
+        + "\"optional_attendees\": [\"Person C\"], \"duration\": 45}";
+
+    MeetingRequest request = MeetingJson.readMeetingRequest(new StringReader(json));
+
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_A, PERSON_B)), new HashSet<>(request.getAttendees()));
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_C)), new HashSet<>(request.getOptionalAttendees()));
+    Assert.assertEquals(45, request.getDuration());
+    Assert.assertTrue(request.getOptionalAttendeeIds()
+        .get(AttendeeDictionary.getInstance().getId(PERSON_C)));
+  }
+
+  @Test
+  public void readsDurationAsStringAndSkipsUnknownFields() throws IOException {
+    // The web page sends the duration as the text of an input field
+    String json = "{\"duration\": \"30\", \"title\": {\"nested\": [1, 2]}, \"attendees\": null}";
+
+    MeetingRequest request = MeetingJson.readMeetingRequest(new StringReader(json));
+
+    Assert.assertEquals(30, request.getDuration());
+    Assert.assertTrue(request.getAttendees().isEmpty());
+    Assert.assertTrue(request.getOptionalAttendees().isEmpty());
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void emptyInputIsRejected() throws IOException {
+    MeetingJson.readMeetingRequest(new StringReader(""));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void malformedInputIsRejected() throws IOException {
+    MeetingJson.readMeetingRequest(new StringReader("{\"attendees\": [\"Person A\""));
+  }
+
+  @Test
+  public void writesSameJsonAsReflection() throws IOException {
+    Collection<TimeRange> ranges = Arrays.asList(
+        TimeRange.fromStartDuration(0, 480), TimeRange.fromStartEnd(540, 1440, false));
+
+    StringWriter writer = new StringWriter();
+    MeetingJson.writeTimeRanges(ranges, writer);
+
+    Assert.assertEquals(new Gson().toJson(ranges), writer.toString());
+    Assert.assertEquals(new Gson().toJson(ranges), MeetingJson.GSON.toJson(ranges));
+  }
+
+  @Test
+  public void sharedGsonReadsListsOfRequests() {
+    String json = "[{\"attendees\": [\"Person A\"], \"duration\": 30}, "
+        + "{\"attendees\": [\"Person B\"], \"optional_attendees\": [\"Person A\"], "
+        + "\"duration\": 60}]";
+
+    List<MeetingRequest> requests = MeetingJson.GSON.fromJson(
+        json, new TypeToken<List<MeetingRequest>>() {}.getType());
+
+    Assert.assertEquals(2, requests.size());
+    Assert.assertEquals(60, requests.get(1).getDuration());
+    Assert.assertEquals(Arrays.asList(PERSON_A),
+        Arrays.asList(requests.get(1).getOptionalAttendees().toArray()));
+  }
+
+  @Test
+  public void requestRoundTrips() throws IOException {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 30);
+    request.addOptionalAttendee(PERSON_B);
+
+    MeetingRequest copy =
+        MeetingJson.readMeetingRequest(new StringReader(MeetingJson.GSON.toJson(request)));
+
+    Assert.assertEquals(request.getAttendees().toString(), copy.getAttendees().toString());
+    Assert.assertEquals(
+        request.getOptionalAttendees().toString(), copy.getOptionalAttendees().toString());
+    Assert.assertEquals(request.getDuration(), copy.getDuration());
+  }
+}
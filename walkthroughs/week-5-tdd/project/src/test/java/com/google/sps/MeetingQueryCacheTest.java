@@ -0,0 +1,152 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class MeetingQueryCacheTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_60_MINUTES = 60;
+
+  private Calendar calendar;
+  private MeetingQueryCache cache;
+
+  @Before
+  public void setUp() {
+    calendar = new Calendar(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B))));
+    cache = new MeetingQueryCache(calendar, 2);
+  }
+
+  @Test
+  public void repeatedRequestIsAHit() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> first = cache.query(request);
+    Collection<TimeRange> second = cache.query(request);
+
+    Assert.assertEquals(new FindMeetingQuery().query(calendar, request), first);
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void attendeeOrderDoesNotMatter() {
+    cache.query(new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES));
+    cache.query(new MeetingRequest(Arrays.asList(PERSON_B, PERSON_A), DURATION_30_MINUTES));
+
+    Assert.assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void durationAndOptionalAttendeesArePartOfTheKey() {
+    MeetingRequest withOptional =
+        new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    withOptional.addOptionalAttendee(PERSON_B);
+
+    cache.query(new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES));
+    cache.query(new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES));
+    cache.query(withOptional);
+
+    Assert.assertEquals(0, cache.getHitCount());
+    Assert.assertEquals(3, cache.getMissCount());
+  }
+
+  @Test
+  public void leastRecentlyUsedEntryIsEvicted() {
+    MeetingRequest requestA = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    MeetingRequest requestB = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+    MeetingRequest requestC = new MeetingRequest(Arrays.asList(PERSON_C), DURATION_30_MINUTES);
+
+    cache.query(requestA);
+    cache.query(requestB);
+    // Use A again so that B is the least recently used entry.
+    cache.query(requestA);
+    cache.query(requestC);
+
+    Assert.assertEquals(1, cache.getEvictionCount());
+    Assert.assertEquals(2, cache.size());
+
+    cache.query(requestA);
+    Assert.assertEquals(2, cache.getHitCount());
+    cache.query(requestB);
+    Assert.assertEquals(2, cache.getHitCount());
+  }
+
+  @Test
+  public void changingAnEventOnlyDropsEntriesOfItsAttendees() {
+    MeetingRequest requestA = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    MeetingRequest requestB = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+    cache.query(requestA);
+    cache.query(requestB);
+
+    calendar.addEvent(new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+
+    Assert.assertEquals(1, cache.size());
+    Collection<TimeRange> answerA = cache.query(requestA);
+    cache.query(requestB);
+
+    Assert.assertEquals(new FindMeetingQuery().query(calendar, requestA), answerA);
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(0, cache.getEvictionCount());
+  }
+
+  @Test
+  public void changingAnOptionalAttendeesEventDropsTheEntry() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_C);
+    cache.query(request);
+
+    calendar.addEvent(new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES), Arrays.asList(PERSON_C)));
+
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void firstEventOfAnUnknownAttendeeDropsTheEntry() {
+    String newcomer = "Cache Person Without Events";
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, newcomer), DURATION_30_MINUTES);
+    cache.query(request);
+
+    calendar.addEvent(new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES), Arrays.asList(newcomer)));
+
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(new FindMeetingQuery().query(calendar, request), cache.query(request));
+  }
+}
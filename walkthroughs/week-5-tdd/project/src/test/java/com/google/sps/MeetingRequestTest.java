@@ -14,6 +14,7 @@
 
 package com.google.sps;
 
+import com.google.gson.Gson;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -35,6 +36,12 @@ public final class MeetingRequestTest {
 
   private static final int DURATION_1_HOUR = 60;
 
+  @Before
+  public void setUp() {
+    // Requests only look names up, so give these people ids the way their events would.
+    AttendeeDictionary.getInstance().internAll(Arrays.asList(PERSON_A, PERSON_B, PERSON_C));
+  }
+
   @Test
   public void CantAddOptionalAttendeeWhoIsAlsoMandatory() {
     MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
@@ -44,4 +51,54 @@ public final class MeetingRequestTest {
     int expected = 0;
     Assert.assertEquals(expected, actual);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void optionalAttendeeIdsFollowOptionalAttendees() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+    request.addOptionalAttendee(PERSON_B);
+
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    Assert.assertTrue(request.getAttendeeIds().get(dictionary.getId(PERSON_A)));
+    Assert.assertTrue(request.getOptionalAttendeeIds().get(dictionary.getId(PERSON_B)));
+    Assert.assertFalse(request.getOptionalAttendeeIds().get(dictionary.getId(PERSON_A)));
+  }
+
+  @Test
+  public void attendeeIdsAreComputedForRequestsReadFromJson() {
+    String json =
+        "{\"attendees\":[\"Person A\"],\"optional_attendees\":[\"Person C\"],\"duration\":60}";
+    MeetingRequest request = new Gson().fromJson(json, MeetingRequest.class);
+
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    Assert.assertEquals(1, request.getAttendeeIds().cardinality());
+    Assert.assertTrue(request.getAttendeeIds().get(dictionary.getId(PERSON_A)));
+    Assert.assertTrue(request.getOptionalAttendeeIds().get(dictionary.getId(PERSON_C)));
+  }
+
+  @Test
+  public void requestsDontInternUnknownNames() {
+    String unknown = "Request Person Without Events";
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    int sizeBefore = dictionary.size();
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A, unknown), DURATION_1_HOUR);
+    request.addOptionalAttendee("Request Optional Person Without Events");
+
+    Assert.assertEquals(-1, dictionary.getId(unknown));
+    Assert.assertEquals(sizeBefore, dictionary.size());
+    Assert.assertEquals(1, request.getAttendeeIds().cardinality());
+    Assert.assertTrue(request.getOptionalAttendeeIds().isEmpty());
+  }
+
+  @Test
+  public void unknownNamesGetTheirIdOnceAnEventMentionsThem() {
+    String later = "Request Person With Later Events";
+    MeetingRequest request = new MeetingRequest(Arrays.asList(later), DURATION_1_HOUR);
+    Assert.assertTrue(request.getAttendeeIds().isEmpty());
+
+    new Event("Event 1", TimeRange.fromStartDuration(0, DURATION_1_HOUR), Arrays.asList(later));
+
+    int id = AttendeeDictionary.getInstance().getId(later);
+    Assert.assertTrue(request.getAttendeeIds().get(id));
+  }
+}
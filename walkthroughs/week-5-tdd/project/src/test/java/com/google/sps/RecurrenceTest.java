@@ -0,0 +1,149 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class RecurrenceTest {
+  private static final ZoneId UTC = ZoneId.of("UTC");
+  private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+  // A Wednesday.
+  private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+  private static final LocalTime NINE_AM = LocalTime.of(9, 0);
+  private static final long DAY = 24 * 60;
+
+  // Two weeks, starting at midnight on the first day.
+  private static final EpochTimeRange TWO_WEEKS = EpochTimeRange.fromStartDuration(
+      EpochTimeRange.ofDay(FIRST_DAY, UTC).start(), 14 * DAY);
+
+  @Test
+  public void dailyOccursEveryDay() {
+    Recurrence daily = Recurrence.of(Recurrence.Frequency.DAILY, FIRST_DAY, NINE_AM, 15, UTC);
+
+    List<EpochTimeRange> occurrences = toList(daily.occurrences(TWO_WEEKS));
+
+    Assert.assertEquals(14, occurrences.size());
+    Assert.assertEquals(at(FIRST_DAY, NINE_AM, UTC, 15), occurrences.get(0));
+    Assert.assertEquals(at(FIRST_DAY.plusDays(13), NINE_AM, UTC, 15), occurrences.get(13));
+  }
+
+  @Test
+  public void weeklyOccursOnTheFirstDaysWeekday() {
+    Recurrence weekly = Recurrence.of(
+        Recurrence.Frequency.WEEKLY, FIRST_DAY.plusDays(2), NINE_AM, 60, UTC);
+
+    List<EpochTimeRange> actual = toList(weekly.occurrences(TWO_WEEKS));
+    List<EpochTimeRange> expected = Arrays.asList(
+        at(FIRST_DAY.plusDays(2), NINE_AM, UTC, 60), at(FIRST_DAY.plusDays(9), NINE_AM, UTC, 60));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void weekdaysSkipWeekends() {
+    Recurrence weekdays =
+        Recurrence.of(Recurrence.Frequency.WEEKDAYS, FIRST_DAY, NINE_AM, 15, UTC);
+
+    // Wednesday 1st to Tuesday 14th has ten weekdays
+    Assert.assertEquals(10, toList(weekdays.occurrences(TWO_WEEKS)).size());
+    Assert.assertFalse(weekdays.occursOn(LocalDate.of(2020, 1, 4)));
+    Assert.assertTrue(weekdays.occursOn(LocalDate.of(2020, 1, 6)));
+  }
+
+  @Test
+  public void exceptionsAndLastDayAreSkipped() {
+    Recurrence daily = Recurrence.of(Recurrence.Frequency.DAILY, FIRST_DAY, NINE_AM, 15, UTC)
+        .except(FIRST_DAY.plusDays(1))
+        .until(FIRST_DAY.plusDays(3));
+
+    List<EpochTimeRange> actual = toList(daily.occurrences(TWO_WEEKS));
+    List<EpochTimeRange> expected = Arrays.asList(at(FIRST_DAY, NINE_AM, UTC, 15),
+        at(FIRST_DAY.plusDays(2), NINE_AM, UTC, 15), at(FIRST_DAY.plusDays(3), NINE_AM, UTC, 15));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void occurrenceThatStartedBeforeTheWindowIsIncluded() {
+    // Starts at 11 PM and lasts two hours, so the one from the day before overlaps the window
+    Recurrence overnight = Recurrence.of(
+        Recurrence.Frequency.DAILY, FIRST_DAY.minusDays(5), LocalTime.of(23, 0), 120, UTC);
+    EpochTimeRange oneDay = EpochTimeRange.ofDay(FIRST_DAY, UTC);
+
+    List<EpochTimeRange> actual = toList(overnight.occurrences(oneDay));
+    List<EpochTimeRange> expected = Arrays.asList(
+        at(FIRST_DAY.minusDays(1), LocalTime.of(23, 0), UTC, 120),
+        at(FIRST_DAY, LocalTime.of(23, 0), UTC, 120));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void occurrencesKeepTheirLocalTimeAcrossDaylightSaving() {
+    // Clocks in New York go forward on March 8th, 2020
+    Recurrence daily = Recurrence.of(
+        Recurrence.Frequency.DAILY, LocalDate.of(2020, 3, 7), NINE_AM, 30, NEW_YORK);
+    EpochTimeRange window = EpochTimeRange.fromStartEnd(
+        ZonedDateTime.of(LocalDate.of(2020, 3, 7), LocalTime.MIDNIGHT, NEW_YORK),
+        ZonedDateTime.of(LocalDate.of(2020, 3, 9), LocalTime.MIDNIGHT, NEW_YORK));
+
+    List<EpochTimeRange> occurrences = toList(daily.occurrences(window));
+
+    Assert.assertEquals(2, occurrences.size());
+    Assert.assertEquals(DAY - 60, occurrences.get(1).start() - occurrences.get(0).start());
+    Assert.assertEquals(NINE_AM, occurrences.get(1).startIn(NEW_YORK).toLocalTime());
+  }
+
+  @Test
+  public void recurrenceThatEndedBeforeTheWindowIsEmpty() {
+    Recurrence daily = Recurrence.of(
+        Recurrence.Frequency.DAILY, FIRST_DAY.minusDays(30), NINE_AM, 15, UTC)
+        .until(FIRST_DAY.minusDays(1));
+
+    Assert.assertEquals(Collections.emptyList(), toList(daily.occurrences(TWO_WEEKS)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void durationMustBePositive() {
+    Recurrence.of(Recurrence.Frequency.DAILY, FIRST_DAY, NINE_AM, 0, UTC);
+  }
+
+  private static EpochTimeRange at(LocalDate day, LocalTime time, ZoneId zone, long duration) {
+    ZonedDateTime start = ZonedDateTime.of(day, time, zone);
+    return EpochTimeRange.fromStartDuration(
+        EpochTimeRange.toEpochMinute(start.toInstant()), duration);
+  }
+
+  private static List<EpochTimeRange> toList(Iterator<EpochTimeRange> iterator) {
+    List<EpochTimeRange> list = new ArrayList<>();
+    iterator.forEachRemaining(list::add);
+    return list;
+  }
+}
@@ -0,0 +1,94 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class RenderedEventsTest {
+  private static final Event EVENT_1 = new Event("Event 1",
+      TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(8, 0), 30), Arrays.asList("Person A"));
+  private static final Event EVENT_2 = new Event("Event 2",
+      TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(9, 0), 30), Arrays.asList("Person B"));
+
+  private RenderedEvents renderedEvents;
+
+  @Before
+  public void setUp() {
+    renderedEvents = new RenderedEvents(Arrays.asList(EVENT_2, EVENT_1));
+  }
+
+  @Test
+  public void rendersEventsInTheGivenOrder() throws IOException {
+    String json = render(renderedEvents, false);
+
+    Assert.assertEquals(new Gson().toJson(Arrays.asList(EVENT_2, EVENT_1)), json);
+  }
+
+  @Test
+  public void rendersTheSampleEventsLikePlainGson() throws IOException {
+    RenderedEvents sample = new RenderedEvents(Arrays.asList(Events.events));
+
+    Assert.assertEquals(new Gson().toJson(Events.events), render(sample, false));
+  }
+
+  @Test
+  public void gzippedJsonMatchesPlainJson() throws IOException {
+    Assert.assertEquals(render(renderedEvents, false), render(renderedEvents, true));
+    Assert.assertNotEquals(renderedEvents.getETag(false), renderedEvents.getETag(true));
+  }
+
+  @Test
+  public void sameEventsGiveSameETag() {
+    RenderedEvents same = new RenderedEvents(Arrays.asList(EVENT_2, EVENT_1));
+    RenderedEvents other = new RenderedEvents(Arrays.asList(EVENT_1));
+
+    Assert.assertEquals(renderedEvents.getETag(false), same.getETag(false));
+    Assert.assertNotEquals(renderedEvents.getETag(false), other.getETag(false));
+    Assert.assertTrue(same.getETag(false).matches("\"[0-9a-f]+\""));
+  }
+
+  // Write the events and return them as a string, unzipping it first if needed
+  private static String render(RenderedEvents events, boolean gzipped) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    events.writeTo(out, gzipped);
+    Assert.assertEquals(events.getLength(gzipped), out.size());
+    if (!gzipped) {
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    ByteArrayOutputStream unzipped = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      byte[] buffer = new byte[4096];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        unzipped.write(buffer, 0, read);
+      }
+    }
+    return new String(unzipped.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,234 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class RoomIndexTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  // Some rooms that we can use in our tests.
+  private static final Room PHONE_BOOTH = new Room("Phone booth", 1);
+  private static final Room SMALL_ROOM = new Room("Small room", 2);
+  private static final Room BIG_ROOM = new Room("Big room", 10);
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private FindMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new FindMeetingQuery();
+  }
+
+  @Test
+  public void roomsAreOrderedByCapacity() {
+    RoomIndex rooms =
+        new RoomIndex(Arrays.asList(BIG_ROOM, PHONE_BOOTH, SMALL_ROOM), Collections.emptyList());
+
+    Assert.assertEquals(PHONE_BOOTH, rooms.getRoom(0));
+    Assert.assertEquals(BIG_ROOM, rooms.getRoom(2));
+    Assert.assertEquals(1, rooms.firstSeating(2));
+    Assert.assertEquals(2, rooms.firstSeating(3));
+    Assert.assertEquals(3, rooms.firstSeating(11));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void roomNamesMustBeDifferent() {
+    new RoomIndex(Arrays.asList(SMALL_ROOM, new Room(SMALL_ROOM.getName(), 4)),
+        Collections.emptyList());
+  }
+
+  @Test
+  public void onlyRoomsThatSeatEveryoneAreReturned() {
+    // Options : |-----------------------------------------------|   in the small room
+    RoomIndex rooms =
+        new RoomIndex(Arrays.asList(PHONE_BOOTH, SMALL_ROOM), Collections.emptyList());
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    List<RoomTimeRange> actual =
+        query.queryRooms(new EventIndex(Collections.emptyList()), rooms, request);
+
+    Assert.assertEquals(Arrays.asList(new RoomTimeRange(TimeRange.WHOLE_DAY, SMALL_ROOM)), actual);
+  }
+
+  @Test
+  public void noRoomIsBigEnough() {
+    RoomIndex rooms = new RoomIndex(Arrays.asList(PHONE_BOOTH), Collections.emptyList());
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    List<RoomTimeRange> actual =
+        query.queryRooms(new EventIndex(Collections.emptyList()), rooms, request);
+
+    Assert.assertEquals(Collections.emptyList(), actual);
+  }
+
+  @Test
+  public void roomBookingsSplitAttendeeAvailability() {
+    // Events  :       |--A--|
+    //                             |--Small room--|
+    // Day     : |-----------------------------------------------|
+    // Options : |--1--|     |--2--|              |------3-------|   in the small room
+    //           |--4--|     |------------5------------------------|   in the big room
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_C, SMALL_ROOM.getName())));
+    RoomIndex rooms = new RoomIndex(Arrays.asList(BIG_ROOM, SMALL_ROOM), events);
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    List<RoomTimeRange> actual = query.queryRooms(new EventIndex(events), rooms, request);
+    List<RoomTimeRange> expected = Arrays.asList(
+        new RoomTimeRange(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), SMALL_ROOM),
+        new RoomTimeRange(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), BIG_ROOM),
+        new RoomTimeRange(TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false), SMALL_ROOM),
+        new RoomTimeRange(
+            TimeRange.fromStartEnd(TIME_0830AM, TimeRange.END_OF_DAY, true), BIG_ROOM),
+        new RoomTimeRange(
+            TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true), SMALL_ROOM));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void roomGapsShorterThanTheMeetingAreSkipped() {
+    // Events  :       |--Room--|  |--Room--|
+    // Day     : |---------------------------------|
+    // Options : |--1--|                    |--2---|
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM + 10, false),
+            Arrays.asList(SMALL_ROOM.getName())),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            Arrays.asList(SMALL_ROOM.getName())));
+    RoomIndex rooms = new RoomIndex(Arrays.asList(SMALL_ROOM), events);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    List<RoomTimeRange> actual = query.queryRooms(new EventIndex(events), rooms, request);
+    List<RoomTimeRange> expected = Arrays.asList(
+        new RoomTimeRange(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), SMALL_ROOM),
+        new RoomTimeRange(
+            TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true), SMALL_ROOM));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void queryMatchesMinuteByMinuteCheck() {
+    Random random = new Random(18);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      people.add("Person " + i);
+    }
+    List<Room> roomList = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      roomList.add(new Room("Room " + i, 1 + random.nextInt(6)));
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = random.nextInt(Math.min(90, TimeRange.WHOLE_DAY.end() - start + 1));
+      String booked = random.nextBoolean()
+          ? roomList.get(random.nextInt(roomList.size())).getName()
+          : people.get(random.nextInt(people.size()));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())), booked)));
+    }
+    EventIndex index = new EventIndex(events);
+    RoomIndex rooms = new RoomIndex(roomList, events);
+
+    for (int i = 0; i < 50; i++) {
+      List<String> attendees = new ArrayList<>();
+      for (int j = random.nextInt(4); j >= 0; j--) {
+        attendees.add(people.get(random.nextInt(people.size())));
+      }
+      MeetingRequest request = new MeetingRequest(attendees, 1 + random.nextInt(60));
+
+      List<RoomTimeRange> actual = query.queryRooms(index, rooms, request);
+      Collection<TimeRange> free = query.query(index, request);
+      for (int position = 0; position < rooms.size(); position++) {
+        Room room = rooms.getRoom(position);
+        List<TimeRange> expected = room.getCapacity() < request.getAttendees().size()
+            ? Collections.emptyList()
+            : freeMinuteRuns(free, events, room, request.getDuration());
+        Assert.assertEquals(expected, rangesIn(actual, room));
+      }
+    }
+  }
+
+  // Find the runs of minutes in which the attendees and the room are free, minute by minute
+  private static List<TimeRange> freeMinuteRuns(
+      Collection<TimeRange> free, List<Event> events, Room room, long duration) {
+    boolean[] busy = new boolean[TimeRange.WHOLE_DAY.duration()];
+    Arrays.fill(busy, true);
+    for (TimeRange range : free) {
+      Arrays.fill(busy, range.start(), range.end(), false);
+    }
+    for (Event event : events) {
+      if (event.getAttendees().contains(room.getName())) {
+        Arrays.fill(busy, event.getWhen().start(), event.getWhen().end(), true);
+      }
+    }
+
+    List<TimeRange> runs = new ArrayList<>();
+    int start = 0;
+    for (int minute = 0; minute <= busy.length; minute++) {
+      if (minute == busy.length || busy[minute]) {
+        if (minute > start && minute - start >= duration) {
+          runs.add(TimeRange.fromStartEnd(start, minute, false));
+        }
+        start = minute + 1;
+      }
+    }
+    return runs;
+  }
+
+  private static List<TimeRange> rangesIn(List<RoomTimeRange> roomRanges, Room room) {
+    List<TimeRange> ranges = new ArrayList<>();
+    for (RoomTimeRange roomRange : roomRanges) {
+      if (roomRange.getRoom().equals(room)) {
+        ranges.add(roomRange.getRange());
+      }
+    }
+    return ranges;
+  }
+}
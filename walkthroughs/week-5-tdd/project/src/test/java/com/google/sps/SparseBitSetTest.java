@@ -0,0 +1,58 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.BitSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class SparseBitSetTest {
+  private static BitSet bits(int... indexes) {
+    BitSet bits = new BitSet();
+    for (int index : indexes) {
+      bits.set(index);
+    }
+    return bits;
+  }
+
+  @Test
+  public void intersectsSharedBit() {
+    SparseBitSet set = new SparseBitSet(bits(3, 5000));
+
+    Assert.assertTrue(set.intersects(bits(5000).toLongArray()));
+    Assert.assertTrue(set.intersects(bits(1, 3).toLongArray()));
+  }
+
+  @Test
+  public void doesNotIntersectDisjointBits() {
+    SparseBitSet set = new SparseBitSet(bits(3, 5000));
+
+    // Same word as bit 3, but a different bit.
+    Assert.assertFalse(set.intersects(bits(4).toLongArray()));
+    // Past the end of the other set.
+    Assert.assertFalse(set.intersects(bits(64).toLongArray()));
+  }
+
+  @Test
+  public void emptySetIntersectsNothing() {
+    SparseBitSet set = new SparseBitSet(new BitSet());
+
+    Assert.assertFalse(set.intersects(bits(0, 1, 2).toLongArray()));
+  }
+}